@@ -0,0 +1,61 @@
+package com.example.contactapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 应用共用的线程池，磁盘和数据库操作放到后台线程，结果通过主线程执行器回到界面
+ */
+public final class AppExecutors {
+
+    private static final ExecutorService DISK_IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "contact-disk-io");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // WAL 模式下读操作可以与写操作、其他读操作并行，读取使用单独的小线程池
+    private static final ExecutorService DB_READ = Executors.newFixedThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, "contact-db-read");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // 照片解码占用 CPU 较多，与数据库操作分开，避免互相排队
+    private static final ExecutorService PHOTO_IO = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "contact-photo-io");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final Executor MAIN_THREAD = MAIN_HANDLER::post;
+
+    private AppExecutors() {
+    }
+
+    // 后台磁盘/数据库操作使用的单线程执行器，所有数据库写操作都在这里按提交顺序执行
+    public static ExecutorService diskIO() {
+        return DISK_IO;
+    }
+
+    // 不需要与写操作排序的数据库读取使用的执行器
+    public static ExecutorService dbRead() {
+        return DB_READ;
+    }
+
+    // 照片读取和解码使用的执行器
+    public static ExecutorService photoIO() {
+        return PHOTO_IO;
+    }
+
+    // 在主线程执行回调的执行器
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+}
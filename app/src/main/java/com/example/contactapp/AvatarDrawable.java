@@ -0,0 +1,92 @@
+package com.example.contactapp;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 没有照片时显示的文字头像：背景色加姓名的第一个字。
+ * 直接画在视图的画布上，大小跟随视图，不创建位图；背景色由联系人ID决定，每次显示都相同。
+ * 同一个 ViewHolder 复用同一个实例，绑定时只需调用 setContact。
+ */
+public class AvatarDrawable extends Drawable {
+
+    // 头像背景色
+    private static final int[] COLORS = {
+            0xFFE57373, 0xFFF06292, 0xFFBA68C8, 0xFF7986CB,
+            0xFF4FC3F7, 0xFF4DB6AC, 0xFF81C784, 0xFFFFB74D
+    };
+    // 文字高度占头像边长的比例
+    private static final float TEXT_SCALE = 0.5f;
+
+    // 所有头像共用的画笔，只在主线程绘制时使用
+    private static final Paint BACKGROUND_PAINT = new Paint();
+    private static final Paint TEXT_PAINT = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    static {
+        TEXT_PAINT.setColor(Color.WHITE);
+        TEXT_PAINT.setTextAlign(Paint.Align.CENTER);
+    }
+
+    private String initial = "";
+    private int backgroundColor = COLORS[0];
+    private int alpha = 255;
+
+    /**
+     * 设置要显示的联系人
+     */
+    public void setContact(long id, String name) {
+        initial = name == null || name.isEmpty() ? "" : name.substring(0, Character.charCount(name.codePointAt(0)));
+        backgroundColor = colorFor(id);
+        invalidateSelf();
+    }
+
+    // 按联系人ID取固定的背景色
+    static int colorFor(long id) {
+        return COLORS[Math.floorMod(Long.hashCode(id), COLORS.length)];
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        long start = PerfMetrics.begin(PerfMetrics.AVATAR_DRAW);
+        try {
+            Rect bounds = getBounds();
+            BACKGROUND_PAINT.setColor(backgroundColor);
+            BACKGROUND_PAINT.setAlpha(alpha);
+            canvas.drawRect(bounds, BACKGROUND_PAINT);
+            if (initial.isEmpty()) {
+                return;
+            }
+            TEXT_PAINT.setAlpha(alpha);
+            TEXT_PAINT.setTextSize(Math.min(bounds.width(), bounds.height()) * TEXT_SCALE);
+            // 文字在垂直方向居中
+            float baseline = bounds.exactCenterY() - (TEXT_PAINT.descent() + TEXT_PAINT.ascent()) / 2;
+            canvas.drawText(initial, bounds.exactCenterX(), baseline, TEXT_PAINT);
+        } finally {
+            PerfMetrics.end(PerfMetrics.AVATAR_DRAW, start);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        // 纯色文字头像不支持颜色滤镜
+    }
+
+    @Override
+    public int getOpacity() {
+        return alpha == 255 ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT;
+    }
+}
@@ -2,21 +2,18 @@ package com.example.contactapp;
 //123
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
 
-import java.util.Random;
+import java.util.Objects;
 
-public class Contact implements Parcelable {
+public class Contact implements Parcelable, ContactEntry {
     private long id;
     private String name;
     private String nickname;
     private String phoneNumber;
     private String group;
     private String photoUri;
+    // 缓存的拼音排序键，只在姓名变化时失效
+    private String sortKey;
 
     // 构造函数
     public Contact(long id, String name, String nickname, String phoneNumber, String group, String photoUri) {
@@ -36,6 +33,7 @@ public class Contact implements Parcelable {
         phoneNumber = in.readString();
         group = in.readString();
         photoUri = in.readString();
+        sortKey = in.readString();
     }
 
     // Parcelable接口的实现
@@ -59,6 +57,7 @@ public class Contact implements Parcelable {
         parcel.writeString(phoneNumber);
         parcel.writeString(group);
         parcel.writeString(photoUri);
+        parcel.writeString(sortKey);
     }
 
     @Override
@@ -66,32 +65,8 @@ public class Contact implements Parcelable {
         return 0;
     }
 
-    // 创建包含字符的位图
-    public Bitmap createBitmapFromCharacter(char character, int viewSize, int color, int padding) {
-        Paint paint = new Paint();
-        paint.setTextSize((float) (viewSize - padding * 2)); // 调整文本大小以适应视图
-        paint.setColor(color);
-        paint.setTextAlign(Paint.Align.CENTER);
-        paint.setAntiAlias(true);
-
-        // 计算文本绘制的基线位置
-        Rect textBounds = new Rect();
-        paint.getTextBounds(String.valueOf(character), 0, 1, textBounds);
-        int width = viewSize;
-        int height = viewSize;
-        float baseline = (height / 2 - (paint.descent() + paint.ascent()) / 2);
-
-        // 创建位图并在其上绘制文本
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        int backgroundColor = Color.rgb(new Random().nextInt(256), new Random().nextInt(256), new Random().nextInt(256));
-        canvas.drawColor(backgroundColor);
-        canvas.drawText(String.valueOf(character), (float) (width / 2), baseline, paint);
-
-        return bitmap;
-    }
-
     // 获取和设置字段的方法
+    @Override
     public long getId() {
         return id;
     }
@@ -100,12 +75,32 @@ public class Contact implements Parcelable {
         this.id = id;
     }
 
+    @Override
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
-        this.name = name;
+        if (!Objects.equals(this.name, name)) {
+            this.name = name;
+            this.sortKey = null; // 姓名变化，排序键需要重新计算
+        }
+    }
+
+    /**
+     * 获取拼音排序键，首次访问时计算并缓存，之后的排序直接复用
+     */
+    @Override
+    public String getSortKey() {
+        if (sortKey == null) {
+            sortKey = PinyinComparator.toPinyin(name);
+        }
+        return sortKey;
+    }
+
+    // 从数据库加载时直接使用已持久化的排序键
+    void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
     }
 
     public String getNickname() {
@@ -124,6 +119,7 @@ public class Contact implements Parcelable {
         this.phoneNumber = phoneNumber;
     }
 
+    @Override
     public String getGroup() {
         return group;
     }
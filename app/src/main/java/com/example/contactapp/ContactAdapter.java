@@ -1,18 +1,15 @@
 package com.example.contactapp;
 
 import android.annotation.SuppressLint;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.net.Uri;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.contactapp.databinding.ItemContactCardBinding;
@@ -21,31 +18,164 @@ import com.example.contactapp.databinding.ItemContactListBinding;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.Objects;
 
 public class ContactAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements android.widget.Filterable {
 
-    private List<Contact> contactList;
-    private List<Contact> filteredContactList;
+    // 完整的联系人列表和它的版本。列表发布后不再修改，每次增删改都换成新的列表，过滤线程读到的总是一致的数据
+    private volatile VersionedList contactList;
+    // contactList 中联系人ID到位置的索引，增删改时按ID定位
+    private final ContactIdIndex contactIndex = new ContactIdIndex();
+    // 在后台线程比较新旧过滤结果，只通知发生变化的行
+    private final AsyncListDiffer<Contact> differ;
+    // 分页模式下的数据来源，联系人较少时为 null，使用上面的完整列表
+    private final ContactPagedList pagedList;
     private boolean isListLayout;
     private final ContactClickListener clickListener;
-    private String nameFilter;
-    private String groupFilter;
+    private final ContactSearcher searcher;
+    // 在主线程修改，在过滤线程读取。每次修改后都会发出新的过滤请求，最后一次过滤读到的一定是最新的一对条件
+    private volatile String nameFilter;
+    private volatile String groupFilter;
+    // 复用同一个 Filter，尚未开始执行的旧过滤请求会被新请求取代
+    private final android.widget.Filter filter = new ContactFilter();
+    // 上一次过滤的条件和结果，新的搜索文本只是在其后追加字符时，直接在上次结果中继续筛选
+    private volatile FilterSnapshot lastFilterSnapshot;
 
     private static final int VIEW_TYPE_LIST = 1;
     private static final int VIEW_TYPE_CARD = 2;
 
+    // 局部刷新的内容，按位组合
+    private static final int PAYLOAD_SELECTION = 1;
+    private static final int PAYLOAD_NAME = 1 << 1;
+    private static final int PAYLOAD_PHOTO = 1 << 2;
+
+    // 当前显示列表的字母索引，随列表一起更新
+    private SectionIndex sections = SectionIndex.EMPTY;
+    private SectionListener sectionListener;
+
+    private long selectedContactId = -1; // 选中的联系人ID，列表变化后据此重新定位
     private int selectedPosition = -1; // 用于存储选中的联系人位置
 
+    private static final PinyinComparator SORT_COMPARATOR = new PinyinComparator();
+
+    private static final DiffUtil.ItemCallback<Contact> DIFF_CALLBACK = new DiffUtil.ItemCallback<Contact>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Contact oldItem, @NonNull Contact newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Contact oldItem, @NonNull Contact newItem) {
+            // 只比较列表中显示的内容
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getPhotoUri(), newItem.getPhotoUri());
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Contact oldItem, @NonNull Contact newItem) {
+            int payload = 0;
+            if (!Objects.equals(oldItem.getName(), newItem.getName())) {
+                payload |= PAYLOAD_NAME;
+            }
+            if (!Objects.equals(oldItem.getPhotoUri(), newItem.getPhotoUri())) {
+                payload |= PAYLOAD_PHOTO;
+            }
+            return payload;
+        }
+    };
+
     public interface ContactClickListener {
         void onContactClick(Contact contact);
     }
 
-    public ContactAdapter(List<Contact> contactList, boolean isListLayout, ContactClickListener clickListener) {
-        this.contactList = contactList;
-        this.filteredContactList = new ArrayList<>(contactList);
+    /**
+     * 显示列表的字母索引变化时回调，用于更新侧边栏
+     */
+    public interface SectionListener {
+        void onSectionsChanged(SectionIndex sections);
+    }
+
+    /**
+     * 按搜索文本查找联系人，返回匹配的联系人ID；在过滤线程中调用
+     */
+    public interface ContactSearcher {
+        long[] search(String query);
+    }
+
+    public ContactAdapter(List<Contact> contactList, boolean isListLayout, ContactSearcher searcher, ContactClickListener clickListener) {
+        this(readOnlyCopyOf(contactList), null, isListLayout, searcher, clickListener); // 之后按增删改事件替换自己的副本
+        List<Contact> initialList = this.contactList.contacts;
+        SectionIndex initialSections = sectionsOf(initialList);
+        differ.submitList(initialList, () -> setSections(initialSections));
+    }
+
+    /**
+     * 分页模式，联系人很多时使用：不在内存中保留完整列表，按滚动位置从数据库加载
+     */
+    public ContactAdapter(ContactDao dao, boolean isListLayout, ContactSearcher searcher, ContactClickListener clickListener) {
+        this(Collections.emptyList(), dao, isListLayout, searcher, clickListener);
+    }
+
+    private ContactAdapter(List<Contact> contactList, ContactDao dao, boolean isListLayout,
+                           ContactSearcher searcher, ContactClickListener clickListener) {
+        this.contactList = new VersionedList(contactList, 0);
+        contactIndex.rebuild(contactList);
         this.isListLayout = isListLayout;
+        this.searcher = searcher;
         this.clickListener = clickListener;
+        // 分页模式下同一位置会从占位行变为联系人，刷新后又可能是另一个联系人，没有稳定的ID；
+        // 页加载完成和列表重新开始都按位置通知，不需要稳定ID
+        setHasStableIds(dao == null);
+        differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        pagedList = dao == null ? null : new ContactPagedList(dao, searcher, new ContactPagedList.Callback() {
+            @SuppressLint("NotifyDataSetChanged")
+            @Override
+            public void onListReset() {
+                selectedPosition = -1;
+                selectedContactId = -1;
+                setSections(pagedList.getSections());
+                notifyDataSetChanged(); // 总数和所有位置都已变化，无法计算差异
+            }
+
+            @Override
+            public void onSectionsChanged(SectionIndex newSections) {
+                setSections(newSections);
+            }
+
+            @Override
+            public void onItemRangeChanged(int start, int count) {
+                notifyItemRangeChanged(start, count);
+            }
+
+            @Override
+            public void onItemRangeInserted(int start, int count) {
+                if (selectedPosition >= start) {
+                    selectedPosition += count;
+                }
+                notifyItemRangeInserted(start, count);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int start, int count) {
+                if (selectedPosition >= start + count) {
+                    selectedPosition -= count;
+                } else if (selectedPosition >= start) {
+                    selectedPosition = -1;
+                    selectedContactId = -1;
+                }
+                notifyItemRangeRemoved(start, count);
+            }
+        });
+    }
+
+    // 分页模式下所在页尚未加载时返回 null，显示为占位行
+    private Contact getItem(int position) {
+        return pagedList != null ? pagedList.get(position) : differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return pagedList != null ? RecyclerView.NO_ID : differ.getCurrentList().get(position).getId();
     }
 
     @Override
@@ -68,20 +198,96 @@ public class ContactAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Contact contact = filteredContactList.get(position);
-        if (holder instanceof ListViewHolder) {
-            ((ListViewHolder) holder).bind(contact, clickListener, position == selectedPosition);
-        } else if (holder instanceof CardViewHolder) {
-            ((CardViewHolder) holder).bind(contact, clickListener, position == selectedPosition);
+        long start = PerfMetrics.begin(PerfMetrics.VIEW_BIND);
+        try {
+            Contact contact = getItem(position);
+            if (contact == null) {
+                ((ContactViewHolder) holder).bindPlaceholder();
+            } else {
+                ((ContactViewHolder) holder).bind(contact, position == selectedPosition);
+            }
+        } finally {
+            PerfMetrics.end(PerfMetrics.VIEW_BIND, start);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // 只刷新发生变化的部分
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        Contact contact = getItem(position);
+        if (contact == null) {
+            return;
+        }
+        ContactViewHolder contactHolder = (ContactViewHolder) holder;
+        if ((changes & PAYLOAD_NAME) != 0) {
+            contactHolder.bindName(contact);
+        }
+        if ((changes & (PAYLOAD_NAME | PAYLOAD_PHOTO)) != 0) {
+            contactHolder.bindPhoto(contact);
+        }
+        if ((changes & PAYLOAD_SELECTION) != 0) {
+            contactHolder.bindSelection(position == selectedPosition);
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        ((ContactViewHolder) holder).onRecycled();
+    }
+
     @Override
     public int getItemCount() {
-        return filteredContactList.size();
+        return pagedList != null ? pagedList.size() : differ.getCurrentList().size();
+    }
+
+    /**
+     * 两种布局共用的 ViewHolder，点击时按当前位置取联系人，局部刷新后无需重新设置监听器
+     */
+    abstract class ContactViewHolder extends RecyclerView.ViewHolder {
+
+        ContactViewHolder(View itemView) {
+            super(itemView);
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                Contact contact = position != RecyclerView.NO_POSITION ? getItem(position) : null;
+                if (contact != null) {
+                    clickListener.onContactClick(contact);
+                }
+            });
+        }
+
+        void bind(Contact contact, boolean isSelected) {
+            bindName(contact);
+            bindPhoto(contact);
+            bindSelection(isSelected);
+        }
+
+        // 分页模式下数据尚未加载的行
+        void bindPlaceholder() {
+            bindSelection(false);
+        }
+
+        abstract void bindName(Contact contact);
+
+        void bindPhoto(Contact contact) {
+        }
+
+        void bindSelection(boolean isSelected) {
+        }
+
+        void onRecycled() {
+        }
     }
 
-    class ListViewHolder extends RecyclerView.ViewHolder {
+    class ListViewHolder extends ContactViewHolder {
         private final ItemContactListBinding binding;
 
         public ListViewHolder(ItemContactListBinding binding) {
@@ -89,183 +295,314 @@ public class ContactAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             this.binding = binding;
         }
 
-        public void bind(final Contact contact, final ContactClickListener clickListener, boolean isSelected) {
+        @Override
+        void bindName(Contact contact) {
             binding.textViewName.setText(contact.getName());
+        }
+
+        @Override
+        void bindPlaceholder() {
+            super.bindPlaceholder();
+            binding.textViewName.setText(null);
+        }
+
+        @Override
+        void bindSelection(boolean isSelected) {
             binding.textViewName.setTextColor(isSelected ? Color.RED : Color.BLACK);
-            binding.getRoot().setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    clickListener.onContactClick(contact);
-                }
-            });
         }
     }
 
-    class CardViewHolder extends RecyclerView.ViewHolder {
+    class CardViewHolder extends ContactViewHolder {
         private final ItemContactCardBinding binding;
+        // 没有照片或照片加载期间显示的文字头像，每个 ViewHolder 复用同一个
+        private final AvatarDrawable avatar = new AvatarDrawable();
+        private final PhotoLoader photoLoader;
 
         public CardViewHolder(ItemContactCardBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            this.photoLoader = PhotoLoader.getInstance(binding.getRoot().getContext());
         }
 
-        public void bind(final Contact contact, final ContactClickListener clickListener, boolean b) {
+        @Override
+        void bindName(Contact contact) {
             binding.textViewName.setText(contact.getName());
+        }
+
+        @Override
+        void bindPlaceholder() {
+            super.bindPlaceholder();
+            binding.textViewName.setText(null);
+            photoLoader.cancel(binding.imgContactPhoto);
+            binding.imgContactPhoto.setImageResource(R.drawable.rounded_item);
+        }
+
+        @Override
+        void bindPhoto(Contact contact) {
+            avatar.setContact(contact.getId(), contact.getName());
             if (contact.getPhotoUri() != null) {
-                // 如果有设置过照片URI，则显示照片
-                binding.imgContactPhoto.setImageURI(Uri.parse(contact.getPhotoUri()));
+                // 如果有设置过照片URI，在后台加载缩略图，加载完成前先显示文字头像
+                photoLoader.load(binding.imgContactPhoto, contact.getPhotoUri(), avatar);
             } else {
-                // 如果未设置照片URI，使用联系人姓名的第一个字符生成位图显示
+                photoLoader.cancel(binding.imgContactPhoto);
                 if (!TextUtils.isEmpty(contact.getName())) {
-                    binding.imgContactPhoto.setImageBitmap(contact.createBitmapFromCharacter(
-                            contact.getName().charAt(0),  // 获取姓名的第一个字符
-                            500, Color.WHITE, 10));  // 设置位图参数
+                    // 如果未设置照片URI，显示联系人姓名的第一个字符
+                    binding.imgContactPhoto.setImageDrawable(avatar);
                 } else {
                     // 处理姓名为空的情况
                     binding.imgContactPhoto.setImageResource(R.drawable.rounded_item);  // 设置默认头像或者空白图片
                 }
             }
-            binding.getRoot().setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    clickListener.onContactClick(contact);
-                }
-            });
         }
 
-
-
-        private Bitmap createBitmapFromCharacter(char character, int viewSize, int color, int padding) {
-            Paint paint = new Paint();
-            paint.setTextSize((float) (viewSize - padding * 2));
-            paint.setColor(color);
-            paint.setTextAlign(Paint.Align.CENTER);
-            paint.setAntiAlias(true);
-
-            Rect textBounds = new Rect();
-            paint.getTextBounds(String.valueOf(character), 0, 1, textBounds);
-            int width = viewSize;
-            int height = viewSize;
-            float baseline = (height / 2 - (paint.descent() + paint.ascent()) / 2);
-
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bitmap);
-            int backgroundColor = Color.rgb(new Random().nextInt(256), new Random().nextInt(256), new Random().nextInt(256));
-            canvas.drawColor(backgroundColor);
-            canvas.drawText(String.valueOf(character), (float) (width / 2), baseline, paint);
-
-            return bitmap;
+        @Override
+        void onRecycled() {
+            photoLoader.cancel(binding.imgContactPhoto); // 视图被回收，不再需要之前的照片
         }
     }
 
     @Override
     public android.widget.Filter getFilter() {
-        return new android.widget.Filter() {
-            @Override
-            protected FilterResults performFiltering(CharSequence constraint) {
-                List<Contact> filteredResults = new ArrayList<>();
-                for (Contact contact : contactList) {
-                    boolean matchesName = (nameFilter == null || contact.getName().toLowerCase().contains(nameFilter.toLowerCase()));
-                    boolean matchesGroup = (groupFilter == null || "全部".equals(groupFilter) || contact.getGroup().equals(groupFilter));
-                    if (matchesName && matchesGroup) {
-                        filteredResults.add(contact);
-                    }
-                }
-//                filteredResults.sort((c1, c2) -> c1.getName().compareToIgnoreCase(c2.getName()));
-                Collections.sort(filteredResults, new PinyinComparator());
+        return filter;
+    }
+
+    private class ContactFilter extends android.widget.Filter {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            String name = nameFilter;
+            String group = groupFilter;
+            VersionedList current = contactList;
+            int version = current.version;
+            FilterSnapshot previous = lastFilterSnapshot;
+            // 搜索结果只会随着输入变长而缩小，可以直接在上次的结果中继续筛选，而不必扫描完整列表
+            List<Contact> source = previous != null && previous.canNarrowTo(name, group, version)
+                    ? previous.results : current.contacts;
+            long start = PerfMetrics.begin(PerfMetrics.ADAPTER_FILTER);
+            try {
+                List<Contact> filtered = filterContacts(source, name, group);
                 FilterResults results = new FilterResults();
-                results.values = filteredResults;
+                // 字母索引和ID到位置的索引都在过滤线程中随结果一起计算
+                ContactIdIndex positions = new ContactIdIndex();
+                positions.rebuild(filtered);
+                results.values = new FilterSnapshot(name, group, version, filtered, sectionsOf(filtered), positions);
                 return results;
+            } finally {
+                PerfMetrics.end(PerfMetrics.ADAPTER_FILTER, start, source.size());
             }
+        }
 
-            @SuppressLint("NotifyDataSetChanged")
-            @Override
-            protected void publishResults(CharSequence constraint, FilterResults results) {
-                filteredContactList = (List<Contact>) results.values;
-                notifyDataSetChanged();
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            if (results.values == null) {
+                return; // 过滤时出现异常，保留当前显示的结果
+            }
+            FilterSnapshot snapshot = (FilterSnapshot) results.values;
+            if (snapshot.version != contactList.version) {
+                return; // 过滤期间联系人列表已被修改，结果已过期
             }
-        };
+            lastFilterSnapshot = snapshot;
+            differ.submitList(snapshot.results, () -> {
+                // 新列表生效后按ID重新定位选中的联系人
+                selectedPosition = selectedContactId == -1 ? -1 : snapshot.positions.get(selectedContactId);
+                setSections(snapshot.sections);
+            });
+        }
+    }
+
+    /**
+     * 不再修改的联系人列表和它的版本，版本每次增删改时递增，用于判断过滤结果是否仍然有效
+     */
+    private static final class VersionedList {
+        final List<Contact> contacts;
+        final int version;
+
+        VersionedList(List<Contact> contacts, int version) {
+            this.contacts = contacts;
+            this.version = version;
+        }
     }
-    // 根据字母查找联系人在列表中的位置
+
+    /**
+     * 一次过滤的条件和结果
+     */
+    private static final class FilterSnapshot {
+        final String nameFilter;
+        final String groupFilter;
+        final int version;
+        final List<Contact> results;
+        final SectionIndex sections;
+        // results 中联系人ID到位置的索引
+        final ContactIdIndex positions;
+
+        FilterSnapshot(String nameFilter, String groupFilter, int version, List<Contact> results, SectionIndex sections,
+                       ContactIdIndex positions) {
+            this.nameFilter = nameFilter;
+            this.groupFilter = groupFilter;
+            this.version = version;
+            this.results = results;
+            this.sections = sections;
+            this.positions = positions;
+        }
+
+        // 新的搜索文本以上次的搜索文本开头、分组相同且联系人列表未变化时，新结果一定是上次结果的子集
+        boolean canNarrowTo(String name, String group, int currentVersion) {
+            return version == currentVersion
+                    && !TextUtils.isEmpty(nameFilter)
+                    && name != null && name.startsWith(nameFilter)
+                    && Objects.equals(groupFilter, group);
+        }
+    }
+
+    // 根据字母查找联系人在列表中的位置，没有该字母的联系人时返回 -1
     int findContactPositionByLetter(char letter) {
-        for (int i = 0; i < filteredContactList.size(); i++) {
-            if (filteredContactList.get(i).getName().substring(0, 1).equalsIgnoreCase(String.valueOf(letter))) {
-                return i;
-            }
+        return sections.getPosition(letter);
+    }
+
+    public SectionIndex getSections() {
+        return sections;
+    }
+
+    public void setSectionListener(SectionListener listener) {
+        this.sectionListener = listener;
+        listener.onSectionsChanged(sections);
+    }
+
+    // 字母索引与显示的列表同时生效
+    private void setSections(SectionIndex newSections) {
+        sections = newSections;
+        if (sectionListener != null) {
+            sectionListener.onSectionsChanged(newSections);
         }
-        return -1;
     }
 
     public void setNameFilter(String name) {
         this.nameFilter = name;
-        getFilter().filter(null);
+        applyFilter();
     }
 
     public void setGroupFilter(String group) {
         this.groupFilter = group;
-        getFilter().filter(null);
+        applyFilter();
     }
 
-    public void insertContact(Contact contact) {
-        contactList.add(contact);
-        filterAndSortContacts(); // 重新过滤和排序联系人列表
-        notifyDataSetChanged(); // 通知适配器数据集已更改
+    private void applyFilter() {
+        if (pagedList != null) {
+            pagedList.setFilter(nameFilter, groupFilter);
+        } else {
+            getFilter().filter(null);
+        }
     }
 
+    /**
+     * 数据库中的联系人已被批量修改，分页模式下重新加载当前筛选结果
+     */
+    public void refresh() {
+        if (pagedList != null) {
+            pagedList.refresh();
+        } else {
+            onContactListChanged(contactList.contacts); // 列表没有变化，但搜索结果可能已经不同
+        }
+    }
 
-    public void updateContact(Contact contact) {
-        int index = findContactIndexById(contact.getId());
-        if (index != -1) {
-            contactList.set(index, contact);
-            //filterAndSortContacts(); // 重新过滤和排序联系人列表
-            notifyDataSetChanged(); // 通知适配器数据集已更改
+    public void insertContact(Contact contact) {
+        if (pagedList != null) {
+            pagedList.onContactInserted(contact);
+            return;
         }
+        List<Contact> contacts = new ArrayList<>(contactList.contacts);
+        int position = findInsertPosition(contacts, contact);
+        contacts.add(position, contact); // 按排序键插入到有序位置
+        contactIndex.reindex(contacts, position, contacts.size());
+        onContactListChanged(Collections.unmodifiableList(contacts));
     }
 
-    public void delContact(Contact contact) {
-        int index = findContactIndexById(contact.getId());
+    public void updateContact(Contact contact) {
+        if (pagedList != null) {
+            pagedList.onContactUpdated(contact);
+            return;
+        }
+        int index = contactIndex.get(contact.getId());
         if (index != -1) {
-            contactList.remove(index);
-            filterAndSortContacts(); // 重新过滤和排序联系人列表
-            notifyDataSetChanged(); // 通知适配器数据集已更改
+            List<Contact> contacts = new ArrayList<>(contactList.contacts);
+            contacts.remove(index);
+            int position = findInsertPosition(contacts, contact);
+            contacts.add(position, contact); // 姓名可能已修改，重新放到有序位置
+            contactIndex.reindex(contacts, Math.min(index, position), Math.max(index, position) + 1);
+            onContactListChanged(Collections.unmodifiableList(contacts));
         }
     }
 
-    private int findContactIndexById(long id) {
-        for (int i = 0; i < contactList.size(); i++) {
-            if (contactList.get(i).getId() == id) {
-                return i;
-            }
+    public void delContact(long contactId) {
+        if (pagedList != null) {
+            pagedList.onContactDeleted(contactId);
+            return;
+        }
+        int index = contactIndex.get(contactId);
+        if (index != -1) {
+            List<Contact> contacts = new ArrayList<>(contactList.contacts);
+            contacts.remove(index);
+            contactIndex.remove(contactId);
+            contactIndex.reindex(contacts, index, contacts.size());
+            onContactListChanged(Collections.unmodifiableList(contacts));
         }
-        return -1;
     }
 
-    private void filterAndSortContacts() {
-        filteredContactList = new ArrayList<>();
-        for (Contact contact : contactList) {
-            boolean matchesName = (nameFilter == null || contact.getName().toLowerCase().contains(nameFilter.toLowerCase()));
-            boolean matchesGroup = (groupFilter == null || "全部".equals(groupFilter) || contact.getGroup().equals(groupFilter));
-            if (matchesName && matchesGroup) {
-                filteredContactList.add(contact);
-            }
+    // 二分查找联系人在有序列表中的插入位置
+    private static int findInsertPosition(List<Contact> contacts, Contact contact) {
+        long start = PerfMetrics.begin(PerfMetrics.ADAPTER_SORT);
+        try {
+            int position = Collections.binarySearch(contacts, contact, SORT_COMPARATOR);
+            return position < 0 ? -position - 1 : position;
+        } finally {
+            PerfMetrics.end(PerfMetrics.ADAPTER_SORT, start);
         }
-//        Collections.sort(filteredContactList, (c1, c2) -> c1.getName().compareToIgnoreCase(c2.getName()));
-        Collections.sort(filteredContactList, new PinyinComparator());
     }
 
+    // 换成新的完整列表并重新过滤，版本加一，之前的过滤结果不能再用于增量筛选。
+    // 与输入搜索文本一样交给过滤线程，搜索时的全文索引查询不占用主线程；连续修改时只有最后一次过滤会执行
+    private void onContactListChanged(List<Contact> contacts) {
+        contactList = new VersionedList(contacts, contactList.version + 1);
+        lastFilterSnapshot = null;
+        filter.filter(null);
+    }
 
+    // 按搜索文本和分组过滤联系人；搜索交给全文索引和拼音索引，这里只按返回的ID筛选
+    private List<Contact> filterContacts(List<Contact> source, String name, String group) {
+        long[] matchedIds = TextUtils.isEmpty(name) ? null : searcher.search(name);
+        return ContactFilters.filter(source, matchedIds, group);
+    }
 
     // 新增：更新适配器中的联系人数据
     public void updateContacts(List<Contact> newContactList) {
-        this.contactList = new ArrayList<>(newContactList);
-        filterAndSortContacts(); // 重新过滤和排序联系人列表
-        notifyDataSetChanged(); // 通知适配器数据集已更改
+        List<Contact> contacts = readOnlyCopyOf(newContactList); // 数据库返回的列表已排好序
+        contactIndex.rebuild(contacts);
+        onContactListChanged(contacts);
+    }
+
+    // 快照上的列表本身只读，直接使用，行在显示时才创建；其他列表之后还会被调用方修改，复制一份
+    private static List<Contact> readOnlyCopyOf(List<Contact> contacts) {
+        return contacts instanceof ContactListSnapshot.ContactList
+                ? contacts : Collections.unmodifiableList(new ArrayList<>(contacts));
     }
 
+    // 快照上的列表已经算好字母索引，不必为读取排序键创建每一行
+    private static SectionIndex sectionsOf(List<Contact> contacts) {
+        return contacts instanceof ContactListSnapshot.ContactList
+                ? ((ContactListSnapshot.ContactList) contacts).getSections() : SectionIndex.of(contacts);
+    }
 
-    // 新增：设置选中的联系人位置
+    // 新增：设置选中的联系人位置，只刷新取消选中和新选中的两行
     public void setSelectedPosition(int position) {
-        selectedPosition = position;
-        notifyDataSetChanged();
+        int previousPosition = selectedPosition;
+        boolean isValid = position >= 0 && position < getItemCount();
+        Contact contact = isValid ? getItem(position) : null;
+        selectedPosition = isValid ? position : -1;
+        selectedContactId = contact != null ? contact.getId() : -1;
+        if (previousPosition >= 0 && previousPosition < getItemCount() && previousPosition != position) {
+            notifyItemChanged(previousPosition, PAYLOAD_SELECTION);
+        }
+        if (isValid) {
+            notifyItemChanged(position, PAYLOAD_SELECTION);
+        }
     }
 }
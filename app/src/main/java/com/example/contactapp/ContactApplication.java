@@ -0,0 +1,38 @@
+package com.example.contactapp;
+
+import android.app.Application;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * 应用入口，负责共享数据库连接的生命周期
+ */
+public class ContactApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 提前开始在后台读取设置文件，MainActivity 读取设置时通常已经加载完成
+        getSharedPreferences("settings", MODE_PRIVATE);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // 界面不可见时把预写日志合并回主库，进程随后被回收也不会留下过大的日志文件
+            AppExecutors.diskIO().execute(() -> ContactDatabaseHelper.getInstance(this).checkpoint());
+        }
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            // 进程进入后台缓存列表，释放 SQLite 占用的页面缓存和照片内存缓存
+            SQLiteDatabase.releaseMemory();
+            PhotoLoader.getInstance(this).clearMemoryCache();
+        }
+    }
+
+    @Override
+    public void onTerminate() {
+        // 仅在模拟器上会被调用，真机进程直接被回收，WAL 模式保证数据不会损坏
+        ContactDatabaseHelper.closeInstance();
+        super.onTerminate();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.contactapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * ContactDatabaseHelper 的异步访问接口，界面线程通过它访问数据库，自己不做任何数据库读写。
+ * 写操作全部在同一个写线程中按提交顺序执行；读操作分散到读线程池中并行执行，WAL 模式下不会被写操作阻塞。
+ * 每个操作返回一个可取消的 {@link Task}，结果在主线程回调；已取消的操作不会回调。
+ */
+public class ContactDao {
+
+    private static final String TAG = "ContactDao";
+
+    private static ContactDao instance;
+
+    /**
+     * 操作结果的回调，在主线程执行
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "数据库操作失败", e);
+        }
+    }
+
+    /**
+     * 一次异步数据库操作，同时也是 Future，后台线程中可以用 get() 等待结果。
+     * 尚未开始执行时取消会直接跳过；已经在执行时取消不会中断 SQLite，但结果不再回调。
+     */
+    public static final class Task<T> extends FutureTask<T> {
+        private final Callback<T> callback;
+
+        Task(Callable<T> callable, Callback<T> callback) {
+            super(callable);
+            this.callback = callback;
+        }
+
+        @Override
+        protected void done() {
+            if (callback == null || isCancelled()) {
+                return;
+            }
+            try {
+                T result = get();
+                AppExecutors.mainThread().execute(() -> {
+                    if (!isCancelled()) {
+                        callback.onResult(result);
+                    }
+                });
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Exception error = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                AppExecutors.mainThread().execute(() -> callback.onError(error));
+            } catch (InterruptedException | CancellationException e) {
+                // done() 在任务结束后调用，get() 不会阻塞，也不会在这里被取消
+            }
+        }
+    }
+
+    private final ContactDatabaseHelper dbHelper;
+
+    private ContactDao(Context context) {
+        dbHelper = ContactDatabaseHelper.getInstance(context);
+    }
+
+    public static synchronized ContactDao getInstance(Context context) {
+        if (instance == null) {
+            instance = new ContactDao(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // 供 read/write 中执行的组合查询使用，不要在主线程直接调用它的方法
+    ContactDatabaseHelper getDatabaseHelper() {
+        return dbHelper;
+    }
+
+    /**
+     * 在读线程池中执行只读操作
+     *
+     * @param callback 可以为 null，此时只能通过返回的 Task 获取结果
+     */
+    public <T> Task<T> read(Callable<T> query, Callback<T> callback) {
+        return submit(AppExecutors.dbRead(), query, callback);
+    }
+
+    /**
+     * 在写线程中执行，排在之前提交的写操作之后。需要读到之前写入结果的读取也应使用它。
+     */
+    public <T> Task<T> write(Callable<T> update, Callback<T> callback) {
+        return submit(AppExecutors.diskIO(), update, callback);
+    }
+
+    private static <T> Task<T> submit(Executor executor, Callable<T> callable, Callback<T> callback) {
+        Task<T> task = new Task<>(callable, callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * 读取完整的联系人信息，联系人不存在时结果为 null
+     */
+    public Task<Contact> getContact(long id, Callback<Contact> callback) {
+        return read(() -> dbHelper.getContact(id), callback);
+    }
+
+    /**
+     * 按来电号码查找联系人，比较最后 {@link PhoneNumbers#DEFAULT_MATCH_DIGITS} 位数字，结果按排序键排序
+     */
+    public Task<List<Contact>> findContactsByPhoneNumber(String phoneNumber, Callback<List<Contact>> callback) {
+        return read(() -> dbHelper.findContactsByPhoneSuffix(phoneNumber, PhoneNumbers.DEFAULT_MATCH_DIGITS),
+                callback);
+    }
+
+    /**
+     * 新增联系人，结果为数据库生成的ID，失败时为 -1
+     */
+    public Task<Long> insertContact(Contact contact, Callback<Long> callback) {
+        return write(() -> dbHelper.insertContact(contact), callback);
+    }
+
+    /**
+     * 更新联系人，结果为更新的行数
+     */
+    public Task<Integer> updateContact(Contact contact, Callback<Integer> callback) {
+        return write(() -> dbHelper.updateContact(contact), callback);
+    }
+
+    /**
+     * 删除联系人，结果为删除的行数
+     */
+    public Task<Integer> deleteContact(long id, Callback<Integer> callback) {
+        return write(() -> dbHelper.deleteContact(id), callback);
+    }
+
+    /**
+     * 重命名分组，结果为修改的联系人数量
+     */
+    public Task<Integer> renameGroup(String oldName, String newName, Callback<Integer> callback) {
+        return write(() -> dbHelper.renameGroup(oldName, newName), callback);
+    }
+
+    /**
+     * 删除分组，其中的联系人移入默认分组，结果为修改的联系人数量
+     */
+    public Task<Integer> deleteGroup(String group, Callback<Integer> callback) {
+        return write(() -> dbHelper.deleteGroup(group), callback);
+    }
+
+    /**
+     * 在后台查找重复的联系人，结果为待用户确认的重复组
+     */
+    public Task<List<DuplicateFinder.Group>> findDuplicateContacts(Callback<List<DuplicateFinder.Group>> callback) {
+        return read(dbHelper::findDuplicateContacts, callback);
+    }
+
+    /**
+     * 在一个事务中合并用户确认的重复组，排在之前提交的写操作之后
+     */
+    public Task<ContactDatabaseHelper.MergeResult> mergeDuplicateContacts(
+            List<long[]> groups, Callback<ContactDatabaseHelper.MergeResult> callback) {
+        return write(() -> dbHelper.mergeDuplicateContacts(groups), callback);
+    }
+}
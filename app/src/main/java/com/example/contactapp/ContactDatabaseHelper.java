@@ -3,11 +3,21 @@ package com.example.contactapp;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 用于管理联系人数据库的帮助类，继承自 SQLiteOpenHelper
@@ -15,7 +25,7 @@ import java.util.List;
 public class ContactDatabaseHelper extends SQLiteOpenHelper {
 
     // 数据库版本
-    private static final int DATABASE_VERSION = 1;
+    static final int DATABASE_VERSION = 11;
     // 数据库名称
     private static final String DATABASE_NAME = "contacts.db";
     // 表名称
@@ -27,10 +37,98 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_PHONE_NUMBER = "phone_number";
     public static final String COLUMN_CONTACT_GROUP = "contact_group";
     public static final String COLUMN_PHOTO_URI = "photo_uri";
+    public static final String COLUMN_SORT_KEY = "sort_key";
+    // 电话号码规范化后的纯数字，以及它的倒序，后者用于按尾号查找
+    public static final String COLUMN_PHONE_DIGITS = "phone_digits";
+    public static final String COLUMN_PHONE_DIGITS_REVERSED = "phone_digits_reversed";
+    // 姓名和昵称中每个汉字单独成词的文本，只用于全文索引，见 SearchText
+    public static final String COLUMN_NAME_CHARS = "name_chars";
+    public static final String COLUMN_NICKNAME_CHARS = "nickname_chars";
+    // 索引名称
+    private static final String INDEX_SORT_KEY = "idx_contacts_sort_key";
+    private static final String INDEX_CONTACT_GROUP = "idx_contacts_group_sort_key";
+    // 版本 9 之前只包含分组列的索引
+    private static final String INDEX_CONTACT_GROUP_V3 = "idx_contacts_contact_group";
+    private static final String INDEX_PHONE_SUFFIX = "idx_contacts_phone_suffix";
+    // 全文搜索索引表，docid 与联系人 ID 相同
+    private static final String FTS_TABLE_NAME = "contacts_fts";
+    // 修改计数表，只有一行，联系人表每次增删改都会递增，用于判断快照文件是否过期
+    private static final String CHANGE_COUNTER_TABLE_NAME = "contacts_change_counter";
+    private static final String COLUMN_CHANGE_COUNT = "change_count";
+    // 分区计数表：每个分组中排序键首字符相同的联系人数，由触发器维护，分页时不必扫描联系人表统计行数
+    private static final String SECTION_COUNT_TABLE_NAME = "contacts_section_counts";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_ROW_COUNT = "row_count";
+    // 默认分组名称
+    public static final String DEFAULT_GROUP = "全部";
+    // 回填排序键时每批处理的行数
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // 联系人列表的默认排序
+    private static final String ORDER_BY_SORT_KEY = COLUMN_SORT_KEY + ", " + COLUMN_ID;
+    // 快照读取使用的列，顺序固定，回调中按下标读取
+    public static final String[] SNAPSHOT_COLUMNS = {COLUMN_ID, COLUMN_NAME, COLUMN_NICKNAME,
+            COLUMN_PHONE_NUMBER, COLUMN_CONTACT_GROUP, COLUMN_PHOTO_URI, COLUMN_SORT_KEY};
+    // 键集分页条件：排在 (sort_key, id) 之后的行。写成行值比较，SQLite 才能在排序键索引上直接定位起点；
+    // id 是整数主键，排序键索引的每一项本身就以 id 结尾，相当于 (sort_key, id) 索引，不需要另建
+    private static final String AFTER_SORT_POSITION = "(" + COLUMN_SORT_KEY + ", " + COLUMN_ID + ") > (?, ?)";
+    // 排在 (sort_key, id) 之前或就是它的行，与上面的条件一起限定一页的范围
+    private static final String UP_TO_SORT_POSITION = "(" + COLUMN_SORT_KEY + ", " + COLUMN_ID + ") <= (?, ?)";
+    // 快照读取和计算分页边界时每条查询读取的行数
+    private static final int SNAPSHOT_CHUNK_SIZE = 1000;
+    // 按ID查询时每条语句绑定的ID个数，低于旧版本 SQLite 每条语句 999 个参数的上限
+    private static final int ID_BATCH_SIZE = 500;
+    // 批量写入时每个事务默认包含的行数
+    public static final int DEFAULT_BULK_BATCH_SIZE = 1000;
+    // 批量插入使用的预编译语句
+    private static final String INSERT_CONTACT_SQL = "INSERT INTO " + TABLE_NAME + " (" +
+            COLUMN_NAME + ", " + COLUMN_NICKNAME + ", " + COLUMN_PHONE_NUMBER + ", " +
+            COLUMN_CONTACT_GROUP + ", " + COLUMN_PHOTO_URI + ", " + COLUMN_SORT_KEY + ", " +
+            COLUMN_PHONE_DIGITS + ", " + COLUMN_PHONE_DIGITS_REVERSED + ", " + COLUMN_NAME_CHARS + ", " +
+            COLUMN_NICKNAME_CHARS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // 按尾号查找的条件：倒序数字在 [键, 键 + ':') 范围内，即以键开头，可以使用尾号索引
+    private static final String PHONE_SUFFIX_RANGE = COLUMN_PHONE_DIGITS_REVERSED + " >= ? AND " +
+            COLUMN_PHONE_DIGITS_REVERSED + " < ?";
+
+    // 进程内唯一的实例，所有页面共用同一个数据库连接池
+    private static ContactDatabaseHelper instance;
+
+    /**
+     * 获取进程内共享的数据库帮助类实例
+     */
+    public static synchronized ContactDatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new ContactDatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 关闭共享实例，由 ContactApplication 在进程结束时调用
+     */
+    static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
 
     // 构造函数
-    public ContactDatabaseHelper(Context context) {
+    private ContactDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // 开启预写日志，读操作（导出、搜索）可以与写操作并发执行
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * 打开数据库连接后、创建或升级之前调用，用于设置连接参数
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // WAL 模式下 NORMAL 同步级别仍能保证数据库一致性，只在检查点时同步磁盘
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        // 页面缓存上限约 4MB（负数表示以 KB 为单位）
+        db.execSQL("PRAGMA cache_size = -4096");
+        db.execSQL("PRAGMA temp_store = MEMORY");
     }
 
     /**
@@ -45,19 +143,326 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_NICKNAME + " TEXT," +
                 COLUMN_PHONE_NUMBER + " TEXT," +
                 COLUMN_CONTACT_GROUP + " TEXT," +
-                COLUMN_PHOTO_URI + " TEXT)";
+                COLUMN_PHOTO_URI + " TEXT," +
+                COLUMN_SORT_KEY + " TEXT," +
+                COLUMN_PHONE_DIGITS + " TEXT," +
+                COLUMN_PHONE_DIGITS_REVERSED + " TEXT," +
+                COLUMN_NAME_CHARS + " TEXT," +
+                COLUMN_NICKNAME_CHARS + " TEXT)";
         db.execSQL(createTable);
+        createSortKeyIndex(db);
+        createGroupIndex(db);
+        createPhoneSuffixIndex(db);
+        createSearchIndex(db);
+        createChangeCounter(db);
+        createSectionCounts(db);
     }
 
     /**
-     * 更新数据库表的方法
+     * 更新数据库表的方法，按版本逐级迁移，保留已有数据
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // 删除旧表，如果存在的话
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
-        // 重新创建表
-        onCreate(db);
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            switch (version) {
+                case 2:
+                    migrateToVersion2(db);
+                    break;
+                case 3:
+                    // 版本 3：分组列索引，用于按分组批量更新
+                    createGroupIndex(db);
+                    break;
+                case 4:
+                    // 版本 4：姓名、昵称、电话的全文搜索索引，版本 11 改变了索引的列，统一在版本 11 创建
+                    break;
+                case 5:
+                    // 版本 5：排序键改为小写，非字母开头的排在最后，字母索引的每个分区都是连续的
+                    backfillSortKeys(db);
+                    break;
+                case 6:
+                    // 版本 6：修改计数，供联系人快照文件判断是否过期
+                    createChangeCounter(db);
+                    break;
+                case 7:
+                    // 版本 7：排序键改用内置拼音表的无声调拼音，不再包含声调数字
+                    backfillSortKeys(db);
+                    break;
+                case 8:
+                    // 版本 8：规范化的电话号码数字和倒序数字，用于来电按尾号查找
+                    migrateToVersion8(db);
+                    break;
+                case 9:
+                    // 版本 9：分组索引加上排序键，按分组分页时可以直接定位到每页的起点
+                    db.execSQL("DROP INDEX IF EXISTS " + INDEX_CONTACT_GROUP_V3);
+                    createGroupIndex(db);
+                    break;
+                case 10:
+                    // 版本 10：分区计数表，分页时直接得到总行数和每个首字母的起始位置
+                    createSectionCounts(db);
+                    db.execSQL("INSERT INTO " + SECTION_COUNT_TABLE_NAME + " SELECT " + groupKey("") + ", " +
+                            sectionKey("") + ", COUNT(*) FROM " + TABLE_NAME + " GROUP BY 1, 2");
+                    break;
+                case 11:
+                    // 版本 11：全文索引加入逐字拆开的姓名和昵称，汉字姓名从中间的字开始也能搜到
+                    migrateToVersion11(db);
+                    break;
+                default:
+                    throw new IllegalStateException("缺少数据库迁移: " + (version - 1) + " -> " + version);
+            }
+        }
+    }
+
+    /**
+     * 版本 2：新增排序键列，回填已有联系人的拼音排序键并建立索引
+     */
+    private void migrateToVersion2(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_SORT_KEY + " TEXT");
+        backfillSortKeys(db);
+        createSortKeyIndex(db);
+    }
+
+    /**
+     * 版本 8：新增号码数字列和倒序数字列，回填已有联系人后再建立尾号索引，回填时不必逐行维护索引
+     */
+    private void migrateToVersion8(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_PHONE_DIGITS + " TEXT");
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_PHONE_DIGITS_REVERSED + " TEXT");
+        backfillPhoneDigits(db);
+        createPhoneSuffixIndex(db);
+    }
+
+    /**
+     * 版本 11：新增逐字拆开的姓名和昵称列并回填，再按新的列重建全文索引
+     */
+    private void migrateToVersion11(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_NAME_CHARS + " TEXT");
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_NICKNAME_CHARS + " TEXT");
+        backfillSearchText(db);
+        for (String trigger : new String[]{"_ai", "_au", "_ad"}) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + FTS_TABLE_NAME + trigger);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + FTS_TABLE_NAME);
+        createSearchIndex(db);
+        db.execSQL("INSERT INTO " + FTS_TABLE_NAME + " (docid, " + COLUMN_NAME + ", " + COLUMN_NICKNAME + ", " +
+                COLUMN_PHONE_NUMBER + ", " + COLUMN_NAME_CHARS + ", " + COLUMN_NICKNAME_CHARS + ") SELECT " +
+                COLUMN_ID + ", " + COLUMN_NAME + ", " + COLUMN_NICKNAME + ", " + phoneSearchText(COLUMN_PHONE_NUMBER) +
+                ", " + COLUMN_NAME_CHARS + ", " + COLUMN_NICKNAME_CHARS + " FROM " + TABLE_NAME);
+    }
+
+    private void createSortKeyIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_SORT_KEY +
+                " ON " + TABLE_NAME + " (" + COLUMN_SORT_KEY + ")");
+    }
+
+    // 分组在前，按分组批量更新时仍然可以使用；同一分组内按排序键有序，供按分组分页
+    private void createGroupIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_CONTACT_GROUP +
+                " ON " + TABLE_NAME + " (" + COLUMN_CONTACT_GROUP + ", " + COLUMN_SORT_KEY + ")");
+    }
+
+    private void createPhoneSuffixIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PHONE_SUFFIX +
+                " ON " + TABLE_NAME + " (" + COLUMN_PHONE_DIGITS_REVERSED + ")");
+    }
+
+    /**
+     * 创建全文搜索索引表以及维护它的触发器，联系人的插入、修改、删除会自动同步到索引
+     */
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + FTS_TABLE_NAME + " USING fts4(" +
+                COLUMN_NAME + ", " + COLUMN_NICKNAME + ", " + COLUMN_PHONE_NUMBER + ", " +
+                COLUMN_NAME_CHARS + ", " + COLUMN_NICKNAME_CHARS + ", tokenize=unicode61)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + FTS_TABLE_NAME + "_ai AFTER INSERT ON " + TABLE_NAME +
+                " BEGIN INSERT INTO " + FTS_TABLE_NAME + " (docid, " + COLUMN_NAME + ", " + COLUMN_NICKNAME + ", " +
+                COLUMN_PHONE_NUMBER + ", " + COLUMN_NAME_CHARS + ", " + COLUMN_NICKNAME_CHARS + ") VALUES (new." +
+                COLUMN_ID + ", new." + COLUMN_NAME + ", new." + COLUMN_NICKNAME + ", " +
+                phoneSearchText("new." + COLUMN_PHONE_NUMBER) + ", new." + COLUMN_NAME_CHARS + ", new." +
+                COLUMN_NICKNAME_CHARS + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + FTS_TABLE_NAME + "_au AFTER UPDATE OF " + COLUMN_NAME + ", " +
+                COLUMN_NICKNAME + ", " + COLUMN_PHONE_NUMBER + ", " + COLUMN_NAME_CHARS + ", " +
+                COLUMN_NICKNAME_CHARS + " ON " + TABLE_NAME +
+                " BEGIN UPDATE " + FTS_TABLE_NAME + " SET " + COLUMN_NAME + " = new." + COLUMN_NAME + ", " +
+                COLUMN_NICKNAME + " = new." + COLUMN_NICKNAME + ", " + COLUMN_PHONE_NUMBER + " = " +
+                phoneSearchText("new." + COLUMN_PHONE_NUMBER) + ", " + COLUMN_NAME_CHARS + " = new." +
+                COLUMN_NAME_CHARS + ", " + COLUMN_NICKNAME_CHARS + " = new." + COLUMN_NICKNAME_CHARS +
+                " WHERE docid = old." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + FTS_TABLE_NAME + "_ad AFTER DELETE ON " + TABLE_NAME +
+                " BEGIN DELETE FROM " + FTS_TABLE_NAME + " WHERE docid = old." + COLUMN_ID + "; END");
+    }
+
+    /**
+     * 创建修改计数表以及递增计数的触发器
+     */
+    private void createChangeCounter(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + CHANGE_COUNTER_TABLE_NAME + " (" +
+                COLUMN_CHANGE_COUNT + " INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + CHANGE_COUNTER_TABLE_NAME + " (" + COLUMN_CHANGE_COUNT + ") VALUES (0)");
+        String increment = " ON " + TABLE_NAME + " BEGIN UPDATE " + CHANGE_COUNTER_TABLE_NAME + " SET " +
+                COLUMN_CHANGE_COUNT + " = " + COLUMN_CHANGE_COUNT + " + 1; END";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + CHANGE_COUNTER_TABLE_NAME + "_ai AFTER INSERT" + increment);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + CHANGE_COUNTER_TABLE_NAME + "_au AFTER UPDATE" + increment);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + CHANGE_COUNTER_TABLE_NAME + "_ad AFTER DELETE" + increment);
+    }
+
+    /**
+     * 创建分区计数表以及维护它的触发器。只有分组或排序键变化时才会修改计数。
+     * 没有分组的联系人计入空字符串分组。
+     */
+    private void createSectionCounts(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + SECTION_COUNT_TABLE_NAME + " (" +
+                COLUMN_CONTACT_GROUP + " TEXT NOT NULL, " + COLUMN_SECTION + " TEXT NOT NULL, " +
+                COLUMN_ROW_COUNT + " INTEGER NOT NULL, PRIMARY KEY (" + COLUMN_CONTACT_GROUP + ", " + COLUMN_SECTION + "))");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + SECTION_COUNT_TABLE_NAME + "_ai AFTER INSERT ON " + TABLE_NAME +
+                " BEGIN " + addToSectionCount("new.", 1) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + SECTION_COUNT_TABLE_NAME + "_au AFTER UPDATE OF " +
+                COLUMN_CONTACT_GROUP + ", " + COLUMN_SORT_KEY + " ON " + TABLE_NAME +
+                " BEGIN " + addToSectionCount("old.", -1) + addToSectionCount("new.", 1) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + SECTION_COUNT_TABLE_NAME + "_ad AFTER DELETE ON " + TABLE_NAME +
+                " BEGIN " + addToSectionCount("old.", -1) + " END");
+    }
+
+    // 触发器中修改一行所在分区的计数，row 为 "new." 或 "old."
+    private static String addToSectionCount(String row, int delta) {
+        String match = " WHERE " + COLUMN_CONTACT_GROUP + " = " + groupKey(row) + " AND " +
+                COLUMN_SECTION + " = " + sectionKey(row) + ";";
+        String update = "UPDATE " + SECTION_COUNT_TABLE_NAME + " SET " + COLUMN_ROW_COUNT + " = " +
+                COLUMN_ROW_COUNT + " + (" + delta + ")" + match;
+        if (delta < 0) {
+            return update;
+        }
+        // 旧版本 SQLite 不支持 UPSERT，先插入计数为 0 的行再累加
+        return "INSERT OR IGNORE INTO " + SECTION_COUNT_TABLE_NAME + " VALUES (" + groupKey(row) + ", " +
+                sectionKey(row) + ", 0); " + update;
+    }
+
+    private static String groupKey(String row) {
+        return "COALESCE(" + row + COLUMN_CONTACT_GROUP + ", '')";
+    }
+
+    // 排序键的首字符，同一首字符的行在排序中是连续的一段
+    private static String sectionKey(String row) {
+        return "COALESCE(SUBSTR(" + row + COLUMN_SORT_KEY + ", 1, 1), '')";
+    }
+
+    /**
+     * 电话号码在索引中的文本：原始号码加上去掉分隔符后的纯数字，两种写法都能按前缀搜到
+     */
+    private static String phoneSearchText(String column) {
+        String phone = "COALESCE(" + column + ", '')";
+        String digits = phone;
+        for (String separator : new String[]{"-", " ", "(", ")", "+"}) {
+            digits = "REPLACE(" + digits + ", '" + separator + "', '')";
+        }
+        return phone + " || ' ' || " + digits;
+    }
+
+    /**
+     * 按主键分批重新计算所有联系人的排序键。
+     * 每批只读取固定行数并从上一批的最大 ID 继续，内存占用与表大小无关，总耗时随行数线性增长。
+     */
+    private void backfillSortKeys(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_NAME +
+                " SET " + COLUMN_SORT_KEY + " = ? WHERE " + COLUMN_ID + " = ?");
+        try {
+            long lastId = Long.MIN_VALUE;
+            int rowsInBatch;
+            do {
+                rowsInBatch = 0;
+                Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_NAME},
+                        COLUMN_ID + " > " + lastId, null, null, null, COLUMN_ID,
+                        String.valueOf(BACKFILL_BATCH_SIZE));
+                try {
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        update.bindString(1, PinyinComparator.toPinyin(cursor.getString(1)));
+                        update.bindLong(2, lastId);
+                        update.executeUpdateDelete();
+                        rowsInBatch++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } while (rowsInBatch == BACKFILL_BATCH_SIZE);
+        } finally {
+            update.close();
+        }
+    }
+
+    /**
+     * 按主键分批计算所有联系人的号码数字和倒序数字，分批方式与 {@link #backfillSortKeys} 相同
+     */
+    private void backfillPhoneDigits(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_NAME + " SET " +
+                COLUMN_PHONE_DIGITS + " = ?, " + COLUMN_PHONE_DIGITS_REVERSED + " = ? WHERE " + COLUMN_ID + " = ?");
+        try {
+            long lastId = Long.MIN_VALUE;
+            int rowsInBatch;
+            do {
+                rowsInBatch = 0;
+                Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_PHONE_NUMBER},
+                        COLUMN_ID + " > " + lastId, null, null, null, COLUMN_ID,
+                        String.valueOf(BACKFILL_BATCH_SIZE));
+                try {
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        String phoneNumber = cursor.getString(1);
+                        bindText(update, 1, PhoneNumbers.digitsOf(phoneNumber));
+                        bindText(update, 2, PhoneNumbers.reversedDigitsOf(phoneNumber));
+                        update.bindLong(3, lastId);
+                        update.executeUpdateDelete();
+                        rowsInBatch++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } while (rowsInBatch == BACKFILL_BATCH_SIZE);
+        } finally {
+            update.close();
+        }
+    }
+
+    // 号码数字列随电话号码一起写入，插入和更新使用
+    private static void putPhoneDigits(ContentValues values, String phoneNumber) {
+        values.put(COLUMN_PHONE_DIGITS, PhoneNumbers.digitsOf(phoneNumber));
+        values.put(COLUMN_PHONE_DIGITS_REVERSED, PhoneNumbers.reversedDigitsOf(phoneNumber));
+    }
+
+    /**
+     * 按主键分批计算所有联系人逐字拆开的姓名和昵称，分批方式与 {@link #backfillSortKeys} 相同
+     */
+    private void backfillSearchText(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_NAME + " SET " +
+                COLUMN_NAME_CHARS + " = ?, " + COLUMN_NICKNAME_CHARS + " = ? WHERE " + COLUMN_ID + " = ?");
+        try {
+            long lastId = Long.MIN_VALUE;
+            int rowsInBatch;
+            do {
+                rowsInBatch = 0;
+                Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_NAME, COLUMN_NICKNAME},
+                        COLUMN_ID + " > " + lastId, null, null, null, COLUMN_ID,
+                        String.valueOf(BACKFILL_BATCH_SIZE));
+                try {
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        bindText(update, 1, SearchText.splitHanzi(cursor.getString(1)));
+                        bindText(update, 2, SearchText.splitHanzi(cursor.getString(2)));
+                        update.bindLong(3, lastId);
+                        update.executeUpdateDelete();
+                        rowsInBatch++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } while (rowsInBatch == BACKFILL_BATCH_SIZE);
+        } finally {
+            update.close();
+        }
+    }
+
+    // 逐字拆开的姓名和昵称随姓名、昵称一起写入，插入和更新使用
+    private static void putSearchText(ContentValues values, Contact contact) {
+        values.put(COLUMN_NAME_CHARS, SearchText.splitHanzi(contact.getName()));
+        values.put(COLUMN_NICKNAME_CHARS, SearchText.splitHanzi(contact.getNickname()));
     }
 
     /**
@@ -74,36 +479,467 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_PHONE_NUMBER, contact.getPhoneNumber());
         values.put(COLUMN_CONTACT_GROUP, contact.getGroup());
         values.put(COLUMN_PHOTO_URI, contact.getPhotoUri());
-        long newRowId = db.insert(TABLE_NAME, null, values);
-        db.close();
-        return newRowId;
+        values.put(COLUMN_SORT_KEY, contact.getSortKey());
+        putPhoneDigits(values, contact.getPhoneNumber());
+        putSearchText(values, contact);
+        long start = PerfMetrics.begin(PerfMetrics.DB_WRITE);
+        try {
+            return db.insert(TABLE_NAME, null, values);
+        } finally {
+            PerfMetrics.end(PerfMetrics.DB_WRITE, start);
+        }
     }
 
     /**
-     * 获取所有联系人的方法
+     * 批量插入联系人的方法。
+     * 复用同一条预编译插入语句，每 batchSize 行显式提交一次事务，避免逐行提交带来的磁盘同步开销。
+     * 插入成功后联系人的 ID 会被替换为数据库生成的行ID。
+     *
+     * @param contacts  要插入的联系人，可以是边读取边产生的惰性序列
+     * @param batchSize 每个事务包含的行数
+     * @return 写入行数和吞吐量
+     */
+    public BulkInsertResult bulkInsertContacts(Iterable<Contact> contacts, int batchSize) {
+        return bulkInsertContacts(contacts, batchSize, null);
+    }
+
+    /**
+     * 可取消的批量插入。取消后提交当前批次已写入的行并停止读取，已提交的批次保留在数据库中。
+     *
+     * @param cancellationSignal 取消信号，可以为 null
+     */
+    public BulkInsertResult bulkInsertContacts(Iterable<Contact> contacts, int batchSize,
+                                               CancellationSignal cancellationSignal) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于 0: " + batchSize);
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        long startNanos = System.nanoTime();
+        long rowsWritten = 0;
+        SQLiteStatement insert = db.compileStatement(INSERT_CONTACT_SQL);
+        try {
+            Iterator<Contact> iterator = contacts.iterator();
+            while (!isCanceled(cancellationSignal) && iterator.hasNext()) {
+                int rowsInBatch = 0;
+                db.beginTransactionNonExclusive();
+                try {
+                    while (rowsInBatch < batchSize && !isCanceled(cancellationSignal) && iterator.hasNext()) {
+                        Contact contact = iterator.next();
+                        bindText(insert, 1, contact.getName());
+                        bindText(insert, 2, contact.getNickname());
+                        bindText(insert, 3, contact.getPhoneNumber());
+                        bindText(insert, 4, contact.getGroup());
+                        bindText(insert, 5, contact.getPhotoUri());
+                        bindText(insert, 6, contact.getSortKey());
+                        bindText(insert, 7, PhoneNumbers.digitsOf(contact.getPhoneNumber()));
+                        bindText(insert, 8, PhoneNumbers.reversedDigitsOf(contact.getPhoneNumber()));
+                        bindText(insert, 9, SearchText.splitHanzi(contact.getName()));
+                        bindText(insert, 10, SearchText.splitHanzi(contact.getNickname()));
+                        contact.setId(insert.executeInsert());
+                        rowsInBatch++;
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                rowsWritten += rowsInBatch;
+            }
+        } finally {
+            insert.close();
+        }
+        return new BulkInsertResult(rowsWritten, System.nanoTime() - startNanos);
+    }
+
+    private static boolean isCanceled(CancellationSignal cancellationSignal) {
+        return cancellationSignal != null && cancellationSignal.isCanceled();
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * 获取所有联系人的方法，结果已按拼音排序键排好序
      *
      * @return 联系人列表
      */
     public List<Contact> getAllContacts() {
         List<Contact> contacts = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_NAME, null, null, null, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
+        Cursor cursor = db.query(TABLE_NAME, null, null, null, null, null, ORDER_BY_SORT_KEY);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY); // 查询在第一次读取游标时才执行
+        try {
+            while (cursor.moveToNext()) {
+                contacts.add(readContact(cursor));
+            }
+        } finally {
+            cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+        return contacts;
+    }
+
+    private static Contact readContact(Cursor cursor) {
+        long id = cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID));
+        String name = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME));
+        String nickname = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NICKNAME));
+        String phoneNumber = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PHONE_NUMBER));
+        String group = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CONTACT_GROUP));
+        String photoUri = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PHOTO_URI));
+        Contact contact = new Contact(id, name, nickname, phoneNumber, group, photoUri);
+        contact.setSortKey(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_SORT_KEY)));
+        return contact;
+    }
+
+    /**
+     * 获取修改计数，联系人表每次增删改后都会变化
+     */
+    public long getChangeCount() {
+        return DatabaseUtils.longForQuery(this.getReadableDatabase(),
+                "SELECT " + COLUMN_CHANGE_COUNT + " FROM " + CHANGE_COUNTER_TABLE_NAME, null);
+    }
+
+    /**
+     * 按ID获取联系人
+     *
+     * @return 联系人，不存在时返回 null
+     */
+    public Contact getContact(long id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, null, COLUMN_ID + " = ?", new String[]{String.valueOf(id)},
+                null, null, null);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
+            return cursor.moveToFirst() ? readContact(cursor) : null;
+        } finally {
+            cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+    }
+
+    /**
+     * 获取联系人总数
+     */
+    public long getContactCount() {
+        return DatabaseUtils.queryNumEntries(this.getReadableDatabase(), TABLE_NAME);
+    }
+
+    /**
+     * 获取满足筛选条件的联系人总数、每一页的边界和字母索引。
+     * 按排序键索引逐段读取排序键和ID两列，每段都从上一段的最后一行直接定位，只记录每页的最后一行；
+     * 之后任意一页都从前一页的最后一行开始查询，不需要 OFFSET 跳过中间的行。
+     * 字母索引读取分区计数表，只有几十行。
+     *
+     * @param selection 筛选条件
+     * @return 总行数、每页的边界和字母索引
+     */
+    public PageAnchors getPageAnchors(ContactSelection selection) {
+        List<String> endSortKeys = new ArrayList<>();
+        List<Long> endIds = new ArrayList<>();
+        String lastSortKey = null;
+        long lastId = 0;
+        int totalRows = 0;
+        int rowsInChunk;
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
             do {
-                long id = cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID));
-                String name = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME));
-                String nickname = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NICKNAME));
-                String phoneNumber = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PHONE_NUMBER));
-                String group = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CONTACT_GROUP));
-                String photoUri = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PHOTO_URI));
-                contacts.add(new Contact(id, name, nickname, phoneNumber, group, photoUri));
-            } while (cursor.moveToNext());
+                rowsInChunk = 0;
+                Cursor cursor = queryPositions(selection, lastSortKey, lastId);
+                try {
+                    while (cursor.moveToNext()) {
+                        lastSortKey = cursor.getString(0);
+                        lastId = cursor.getLong(1);
+                        rowsInChunk++;
+                        if (++totalRows % ContactPagedList.PAGE_SIZE == 0) {
+                            endSortKeys.add(lastSortKey);
+                            endIds.add(lastId);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } while (rowsInChunk == SNAPSHOT_CHUNK_SIZE);
+        } finally {
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+        // 最后一页没有下一页，不需要它的边界
+        int boundaries = Math.max(0, (totalRows - 1) / ContactPagedList.PAGE_SIZE);
+        long[] ids = new long[boundaries];
+        for (int i = 0; i < boundaries; i++) {
+            ids[i] = endIds.get(i);
+        }
+        return new PageAnchors(endSortKeys.subList(0, boundaries).toArray(new String[0]), ids, totalRows,
+                getSectionIndex(selection));
+    }
+
+    // 从 (afterSortKey, afterId) 之后读取一段排序键和ID，只使用索引，不读取表中的行
+    private Cursor queryPositions(ContactSelection selection, String afterSortKey, long afterId) {
+        String where = selection.where;
+        String[] args = selection.args;
+        if (afterSortKey != null) {
+            where = (where == null ? "" : "(" + where + ") AND ") + "(" + AFTER_SORT_POSITION + ")";
+            args = Arrays.copyOf(args, args.length + 2);
+            args[args.length - 2] = afterSortKey;
+            args[args.length - 1] = String.valueOf(afterId);
+        }
+        return this.getReadableDatabase().query(TABLE_NAME, new String[]{COLUMN_SORT_KEY, COLUMN_ID}, where, args,
+                null, null, ORDER_BY_SORT_KEY, String.valueOf(SNAPSHOT_CHUNK_SIZE));
+    }
+
+    /**
+     * 由分区计数表计算满足筛选条件的字母索引，耗时与联系人数量无关
+     */
+    public SectionIndex getSectionIndex(ContactSelection selection) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String total = "SUM(" + COLUMN_ROW_COUNT + ")";
+        Cursor cursor = db.query(SECTION_COUNT_TABLE_NAME, new String[]{COLUMN_SECTION, total},
+                selection.where, selection.args, COLUMN_SECTION, total + " > 0", COLUMN_SECTION);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
+            SectionIndex.Builder builder = new SectionIndex.Builder();
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getString(0), cursor.getInt(1));
+            }
+            return builder.build();
+        } finally {
+            cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+    }
+
+    /**
+     * 按排序键读取一页联系人，从 (afterSortKey, afterId) 之后开始，不使用 OFFSET
+     *
+     * @param selection    筛选条件
+     * @param afterSortKey 上一页最后一行的排序键，为 null 时从第一行开始
+     * @param afterId      上一页最后一行的联系人ID
+     * @param limit        最多读取的行数
+     * @return 联系人列表
+     */
+    public List<Contact> getContactsPage(ContactSelection selection, String afterSortKey, long afterId, int limit) {
+        return afterSortKey == null ? queryPage(selection, null, null, limit)
+                : queryPage(selection, AFTER_SORT_POSITION, new String[]{afterSortKey, String.valueOf(afterId)}, limit);
+    }
+
+    /**
+     * 读取排在 (afterSortKey, afterId) 之后、不超过 (toSortKey, toId) 的联系人，即相邻两个分页边界之间的一页。
+     * 范围由边界决定而不是行数，期间增删的联系人会直接体现在读到的行数上。
+     *
+     * @param afterSortKey 前一页最后一行的排序键，为 null 时从第一行开始
+     * @param toSortKey    本页最后一行的排序键，为 null 时读到最后一行
+     */
+    public List<Contact> getContactsBetween(ContactSelection selection, String afterSortKey, long afterId,
+                                            String toSortKey, long toId) {
+        if (afterSortKey == null) {
+            return toSortKey == null ? queryPage(selection, null, null, 0)
+                    : queryPage(selection, UP_TO_SORT_POSITION, new String[]{toSortKey, String.valueOf(toId)}, 0);
+        }
+        String[] afterArgs = {afterSortKey, String.valueOf(afterId)};
+        return toSortKey == null ? queryPage(selection, AFTER_SORT_POSITION, afterArgs, 0)
+                : queryPage(selection, AFTER_SORT_POSITION + " AND " + UP_TO_SORT_POSITION,
+                new String[]{afterSortKey, String.valueOf(afterId), toSortKey, String.valueOf(toId)}, 0);
+    }
+
+    // 在筛选条件上再加上排序位置条件，读取一页，limit 为 0 时不限行数
+    private List<Contact> queryPage(ContactSelection selection, String position, String[] positionArgs, int limit) {
+        String where = selection.where;
+        String[] args = selection.args;
+        if (position != null) {
+            where = (where == null ? "" : "(" + where + ") AND ") + "(" + position + ")";
+            args = Arrays.copyOf(args, args.length + positionArgs.length);
+            System.arraycopy(positionArgs, 0, args, selection.args.length, positionArgs.length);
+        }
+        List<Contact> contacts = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, null, where, args, null, null, ORDER_BY_SORT_KEY,
+                limit > 0 ? String.valueOf(limit) : null);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
+            while (cursor.moveToNext()) {
+                contacts.add(readContact(cursor));
+            }
+        } finally {
             cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+        return contacts;
+    }
+
+    /**
+     * 按筛选条件过滤搜索匹配的联系人ID，并按排序键排好序，同时计算字母索引。
+     * ID 分批作为参数绑定，每批一条查询，只读取ID和排序键两列。
+     *
+     * @param selection  筛选条件
+     * @param matchedIds 搜索匹配的联系人ID，可以无序、有重复
+     * @return 按排序键排序的ID和字母索引
+     */
+    public MatchedContacts getMatchedContacts(ContactSelection selection, long[] matchedIds) {
+        long[] ids = matchedIds.clone();
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        List<Contact> matched = new ArrayList<>(unique);
+        SQLiteDatabase db = this.getReadableDatabase();
+        for (int from = 0; from < unique; from += ID_BATCH_SIZE) {
+            int count = Math.min(ID_BATCH_SIZE, unique - from);
+            String where = idInClause(count);
+            String[] args = idArgs(ids, from, count, selection.args.length);
+            if (selection.where != null) {
+                where += " AND " + selection.where;
+                System.arraycopy(selection.args, 0, args, count, selection.args.length);
+            }
+            Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_SORT_KEY}, where, args,
+                    null, null, null);
+            long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+            try {
+                while (cursor.moveToNext()) {
+                    Contact contact = new Contact(cursor.getLong(0), null, null, null, null, null);
+                    contact.setSortKey(cursor.getString(1));
+                    matched.add(contact);
+                }
+            } finally {
+                cursor.close();
+                PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+            }
+        }
+        Collections.sort(matched, new PinyinComparator());
+        long[] sortedIds = new long[matched.size()];
+        for (int i = 0; i < sortedIds.length; i++) {
+            sortedIds[i] = matched.get(i).getId();
+        }
+        return new MatchedContacts(sortedIds, SectionIndex.of(matched));
+    }
+
+    /**
+     * 按给定顺序读取 ids[from, to) 中的联系人，已被删除的跳过
+     */
+    public List<Contact> getContactsByIds(long[] ids, int from, int to) {
+        List<Contact> contacts = new ArrayList<>(to - from);
+        Map<Long, Contact> contactsById = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        for (int batchFrom = from; batchFrom < to; batchFrom += ID_BATCH_SIZE) {
+            int count = Math.min(ID_BATCH_SIZE, to - batchFrom);
+            Cursor cursor = db.query(TABLE_NAME, null, idInClause(count), idArgs(ids, batchFrom, count, 0),
+                    null, null, null);
+            long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+            try {
+                while (cursor.moveToNext()) {
+                    Contact contact = readContact(cursor);
+                    contactsById.put(contact.getId(), contact);
+                }
+            } finally {
+                cursor.close();
+                PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+            }
+        }
+        for (int i = from; i < to; i++) {
+            Contact contact = contactsById.get(ids[i]);
+            if (contact != null) {
+                contacts.add(contact);
+            }
         }
-        db.close();
         return contacts;
     }
 
+    // "id IN (?, ?, ...)"：ID 作为参数绑定，语句文本只与个数有关
+    private static String idInClause(int count) {
+        StringBuilder where = new StringBuilder(COLUMN_ID).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            where.append(i == 0 ? "?" : ", ?");
+        }
+        return where.append(')').toString();
+    }
+
+    // ids[from, from + count) 转为查询参数，后面留出 extra 个位置给其他参数
+    private static String[] idArgs(long[] ids, int from, int count, int extra) {
+        String[] args = new String[count + extra];
+        for (int i = 0; i < count; i++) {
+            args[i] = String.valueOf(ids[from + i]);
+        }
+        return args;
+    }
+
+    /**
+     * 逐个读取联系人姓名的回调
+     */
+    public interface NameReader {
+        void onName(long id, String name);
+    }
+
+    /**
+     * 读取所有联系人的ID和姓名，用于构建拼音索引。一个游标读完，不创建联系人对象，也不保留完整列表。
+     */
+    public void readContactNames(NameReader reader) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_NAME}, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                reader.onName(cursor.getLong(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 逐行读取联系人快照的回调
+     */
+    public interface SnapshotReader {
+        // 读取开始前回调一次，参数为快照中的总行数和开始读取前的修改计数
+        void onStart(long totalRows, long changeCount) throws IOException;
+
+        // 每行回调一次，游标列顺序与 SNAPSHOT_COLUMNS 一致，回调中不要移动游标
+        void onRow(Cursor cursor) throws IOException;
+    }
+
+    /**
+     * 按排序键读取全部联系人，以键集分页的方式每条查询只读取固定行数，每段都从排序键索引上直接定位起点，
+     * 内存占用与联系人数量无关，也不会像单个大游标那样每次重新填充窗口都从头跳过已读的行。
+     * 不开启事务：API 35 之前 Android 的事务都在唯一的写连接上执行，即使只读也会让所有写操作等到读取结束。
+     * <p>
+     * 读取期间如有写入，前后两段可能不是同一时刻的数据，此时返回 false，由调用方决定重新读取还是放弃。
+     *
+     * @return 读取期间联系人是否没有被修改，即读到的是同一时刻的一致快照
+     */
+    public boolean readContactsSnapshot(SnapshotReader reader) throws IOException {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long changeCount = getChangeCount();
+        reader.onStart(DatabaseUtils.queryNumEntries(db, TABLE_NAME), changeCount);
+        String lastSortKey = "";
+        long lastId = 0;
+        boolean firstChunk = true;
+        int rowsInChunk;
+        do {
+            rowsInChunk = 0;
+            Cursor cursor = firstChunk
+                    ? db.query(TABLE_NAME, SNAPSHOT_COLUMNS, null, null, null, null,
+                    ORDER_BY_SORT_KEY, String.valueOf(SNAPSHOT_CHUNK_SIZE))
+                    : db.query(TABLE_NAME, SNAPSHOT_COLUMNS, AFTER_SORT_POSITION,
+                    new String[]{lastSortKey, String.valueOf(lastId)}, null, null,
+                    ORDER_BY_SORT_KEY, String.valueOf(SNAPSHOT_CHUNK_SIZE));
+            try {
+                while (cursor.moveToNext()) {
+                    reader.onRow(cursor);
+                    lastId = cursor.getLong(0);
+                    lastSortKey = cursor.getString(6);
+                    rowsInChunk++;
+                }
+            } finally {
+                cursor.close();
+            }
+            firstChunk = false;
+        } while (rowsInChunk == SNAPSHOT_CHUNK_SIZE);
+        return getChangeCount() == changeCount;
+    }
+
     /**
      * 更新联系人的方法
      *
@@ -118,9 +954,15 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_PHONE_NUMBER, contact.getPhoneNumber());
         values.put(COLUMN_CONTACT_GROUP, contact.getGroup());
         values.put(COLUMN_PHOTO_URI, contact.getPhotoUri());
-        int rowsUpdated = db.update(TABLE_NAME, values, COLUMN_ID + " = ?", new String[]{String.valueOf(contact.getId())});
-        db.close();
-        return rowsUpdated;
+        values.put(COLUMN_SORT_KEY, contact.getSortKey());
+        putPhoneDigits(values, contact.getPhoneNumber());
+        putSearchText(values, contact);
+        long start = PerfMetrics.begin(PerfMetrics.DB_WRITE);
+        try {
+            return db.update(TABLE_NAME, values, COLUMN_ID + " = ?", new String[]{String.valueOf(contact.getId())});
+        } finally {
+            PerfMetrics.end(PerfMetrics.DB_WRITE, start);
+        }
     }
 
     /**
@@ -131,9 +973,197 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
      */
     public int deleteContact(long contactId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        int rowsDeleted = db.delete(TABLE_NAME, COLUMN_ID + " = ?", new String[]{String.valueOf(contactId)});
-        db.close();
-        return rowsDeleted;
+        long start = PerfMetrics.begin(PerfMetrics.DB_WRITE);
+        try {
+            return db.delete(TABLE_NAME, COLUMN_ID + " = ?", new String[]{String.valueOf(contactId)});
+        } finally {
+            PerfMetrics.end(PerfMetrics.DB_WRITE, start);
+        }
+    }
+
+    /**
+     * 重命名分组，把该分组下的所有联系人移到新分组。
+     * 单条 UPDATE 语句借助分组索引定位，在一个事务内完成。
+     *
+     * @param oldGroup 原分组名
+     * @param newGroup 新分组名
+     * @return 更新的行数
+     */
+    public int renameGroup(String oldGroup, String newGroup) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CONTACT_GROUP, newGroup);
+        return db.update(TABLE_NAME, values, COLUMN_CONTACT_GROUP + " = ?", new String[]{oldGroup});
+    }
+
+    /**
+     * 删除分组，该分组下的联系人归入默认分组
+     *
+     * @param group 要删除的分组名
+     * @return 更新的行数
+     */
+    public int deleteGroup(String group) {
+        return renameGroup(group, DEFAULT_GROUP);
+    }
+
+    /**
+     * 查找重复的联系人，分组规则见 {@link DuplicateFinder}。
+     * 只读取ID、姓名、排序键和号码数字四列，一个游标按ID顺序读完，不开启事务，查找期间不阻塞写操作。
+     * 查找期间被修改或删除的联系人由 {@link #mergeDuplicateContacts} 合并前再次核对。
+     *
+     * @return 重复组，每组至少两个联系人
+     */
+    public List<DuplicateFinder.Group> findDuplicateContacts() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID, COLUMN_NAME, COLUMN_SORT_KEY, COLUMN_PHONE_DIGITS},
+                null, null, null, null, COLUMN_ID);
+        try {
+            DuplicateFinder finder = new DuplicateFinder(cursor.getCount());
+            while (cursor.moveToNext()) {
+                finder.add(cursor.getLong(0), cursor.getString(1), cursor.getString(2), cursor.getString(3));
+            }
+            return finder.find();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 合并重复的联系人，所有组在同一个事务中完成，要么全部合并，要么都不修改。
+     * 每组保留ID最小的联系人，它为空的昵称、电话、头像和默认分组由其余联系人按ID顺序补齐，其余联系人随后删除。
+     * 查找之后已被删除的联系人会被跳过，剩下不足两个的组不再合并。
+     *
+     * @param groups 要合并的组，每组为联系人ID
+     * @return 合并的组数和删除的联系人数
+     */
+    public MergeResult mergeDuplicateContacts(List<long[]> groups) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long startNanos = System.nanoTime();
+        int groupsMerged = 0;
+        int contactsRemoved = 0;
+        db.beginTransactionNonExclusive();
+        try {
+            for (long[] ids : groups) {
+                List<Contact> contacts = getContacts(db, ids);
+                if (contacts.size() < 2) {
+                    continue;
+                }
+                Contact keeper = contacts.get(0);
+                for (int i = 1; i < contacts.size(); i++) {
+                    Contact duplicate = contacts.get(i);
+                    fillMissingFields(keeper, duplicate);
+                    contactsRemoved += db.delete(TABLE_NAME, COLUMN_ID + " = ?",
+                            new String[]{String.valueOf(duplicate.getId())});
+                }
+                updateContact(keeper);
+                groupsMerged++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return new MergeResult(groupsMerged, contactsRemoved, System.nanoTime() - startNanos);
+    }
+
+    // 按ID升序读取仍然存在的联系人
+    private static List<Contact> getContacts(SQLiteDatabase db, long[] ids) {
+        long[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds); // 每批按ID排序，批次之间也按ID递增，拼起来整体有序
+        List<Contact> contacts = new ArrayList<>(sortedIds.length);
+        for (int from = 0; from < sortedIds.length; from += ID_BATCH_SIZE) {
+            int count = Math.min(ID_BATCH_SIZE, sortedIds.length - from);
+            Cursor cursor = db.query(TABLE_NAME, null, idInClause(count), idArgs(sortedIds, from, count, 0),
+                    null, null, COLUMN_ID);
+            try {
+                while (cursor.moveToNext()) {
+                    contacts.add(readContact(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return contacts;
+    }
+
+    // 保留的联系人中为空的字段用重复联系人的值补齐，已有的值不覆盖
+    private static void fillMissingFields(Contact keeper, Contact duplicate) {
+        if (isEmpty(keeper.getNickname())) {
+            keeper.setNickname(duplicate.getNickname());
+        }
+        if (isEmpty(keeper.getPhoneNumber())) {
+            keeper.setPhoneNumber(duplicate.getPhoneNumber());
+        }
+        if (isEmpty(keeper.getPhotoUri())) {
+            keeper.setPhotoUri(duplicate.getPhotoUri());
+        }
+        if (isEmpty(keeper.getGroup()) || DEFAULT_GROUP.equals(keeper.getGroup())) {
+            if (!isEmpty(duplicate.getGroup())) {
+                keeper.setGroup(duplicate.getGroup());
+            }
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * 按姓名、昵称、电话搜索联系人，查询中的每个词都按前缀匹配；含汉字的词也能从姓名、昵称中间的字开始匹配
+     *
+     * @param query 用户输入的搜索文本
+     * @return 匹配的联系人ID，按排序键排序
+     */
+    public long[] searchContactIds(String query) {
+        String match = SearchText.toPrefixMatch(query);
+        if (match.isEmpty()) {
+            return new long[0];
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, new String[]{COLUMN_ID},
+                COLUMN_ID + " IN (SELECT docid FROM " + FTS_TABLE_NAME + " WHERE " + FTS_TABLE_NAME + " MATCH ?)",
+                new String[]{match}, null, null, ORDER_BY_SORT_KEY);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                ids[i++] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+    }
+
+    /**
+     * 来电显示式的号码查找：号码的最后 matchDigits 位数字相同即匹配，忽略分隔符、国家码和长途区号的写法差异。
+     * 查找的号码不足 matchDigits 位时比较它的全部数字，例如 10086 会匹配所有以 10086 结尾的号码。
+     * 查询是尾号索引上的一次范围查找，耗时只与匹配的行数有关，与联系人总数基本无关。
+     *
+     * @param phoneNumber 要查找的号码，可以包含任意分隔符
+     * @param matchDigits 比较的尾号位数
+     * @return 匹配的联系人，按排序键排序；号码不含数字时为空列表
+     */
+    public List<Contact> findContactsByPhoneSuffix(String phoneNumber, int matchDigits) {
+        String key = PhoneNumbers.suffixKeyOf(phoneNumber, matchDigits);
+        List<Contact> contacts = new ArrayList<>();
+        if (key == null) {
+            return contacts;
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_NAME, null, PHONE_SUFFIX_RANGE,
+                new String[]{key, PhoneNumbers.prefixUpperBound(key)}, null, null, ORDER_BY_SORT_KEY);
+        long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+        try {
+            while (cursor.moveToNext()) {
+                contacts.add(readContact(cursor));
+            }
+        } finally {
+            cursor.close();
+            PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+        }
+        return contacts;
     }
 
     /**
@@ -149,19 +1179,215 @@ public class ContactDatabaseHelper extends SQLiteOpenHelper {
                 null, null, null, null, null);
         // 执行查询操作，查询所有不重复的联系人分组名
 
-        if (cursor != null && cursor.moveToFirst()) {
-            // 如果查询结果非空且移动到第一行成功，则进入循环
-            do {
+        try {
+            while (cursor.moveToNext()) { // 逐行移动游标，直到没有更多结果
                 String group = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CONTACT_GROUP));
                 // 从游标中获取分组名数据
                 groups.add(group); // 将分组名添加到列表中
-            } while (cursor.moveToNext()); // 移动游标到下一行，继续循环
+            }
+        } finally {
+            cursor.close(); // 关闭游标，释放资源；数据库连接保持打开供后续复用
+        }
+        return groups; // 返回所有查询到的不重复分组名列表
+    }
+
+    /**
+     * 分页查询的筛选条件：按分组筛选。搜索结果另见 {@link #getMatchedContacts}
+     */
+    public static final class ContactSelection {
+        // WHERE 子句，不筛选时为 null
+        final String where;
+        final String[] args;
+        // 筛选的分组，不筛选时为 null
+        private final String group;
 
-            cursor.close(); // 关闭游标，释放资源
+        private ContactSelection(String where, String[] args, String group) {
+            this.where = where;
+            this.args = args;
+            this.group = group;
         }
 
-        db.close(); // 关闭数据库连接，释放资源
-        return groups; // 返回所有查询到的不重复分组名列表
+        /**
+         * @param group 分组名，为 null 或默认分组时不按分组筛选
+         */
+        public static ContactSelection of(String group) {
+            if (group == null || DEFAULT_GROUP.equals(group)) {
+                return new ContactSelection(null, new String[0], null);
+            }
+            return new ContactSelection(COLUMN_CONTACT_GROUP + " = ?", new String[]{group}, group);
+        }
+
+        /**
+         * 联系人是否满足筛选条件，与 WHERE 子句的判断一致
+         */
+        public boolean contains(ContactEntry contact) {
+            return group == null || group.equals(contact.getGroup());
+        }
     }
-}
 
+    /**
+     * 搜索结果：按排序键排好序的联系人ID和字母索引，分页时按位置截取ID读取
+     */
+    public static final class MatchedContacts {
+        private final long[] ids;
+        private final SectionIndex sections;
+
+        MatchedContacts(long[] ids, SectionIndex sections) {
+            this.ids = ids;
+            this.sections = sections;
+        }
+
+        public long[] getIds() {
+            return ids;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public SectionIndex getSections() {
+            return sections;
+        }
+    }
+
+    /**
+     * 分页的定位信息：除最后一页外每页最后一行的排序键和ID、总行数，以及字母索引
+     */
+    public static final class PageAnchors {
+        static final PageAnchors EMPTY = new PageAnchors(new String[0], new long[0], 0, SectionIndex.EMPTY);
+
+        private final String[] endSortKeys;
+        private final long[] endIds;
+        private final int totalRows;
+        private final SectionIndex sections;
+
+        PageAnchors(String[] endSortKeys, long[] endIds, int totalRows, SectionIndex sections) {
+            this.endSortKeys = endSortKeys;
+            this.endIds = endIds;
+            this.totalRows = totalRows;
+            this.sections = sections;
+        }
+
+        public SectionIndex getSections() {
+            return sections;
+        }
+
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        /**
+         * 页数，没有联系人时也有一个空页，之后新增的联系人放在这一页
+         */
+        public int getPageCount() {
+            return endSortKeys.length + 1;
+        }
+
+        /**
+         * 第 page 页之前一行的排序键，第一页返回 null；page 为页数时是最后一页的结尾，同样返回 null
+         */
+        public String getSortKeyBefore(int page) {
+            return page == 0 || page > endSortKeys.length ? null : endSortKeys[page - 1];
+        }
+
+        /**
+         * 第 page 页之前一行的联系人ID
+         */
+        public long getIdBefore(int page) {
+            return page == 0 || page > endIds.length ? 0 : endIds[page - 1];
+        }
+
+        /**
+         * 联系人按排序位置所在的页。边界行属于以它结尾的那一页，因此只数严格排在联系人之前的边界
+         */
+        public int pageOf(ContactEntry contact) {
+            int low = 0;
+            int high = endSortKeys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int result = endSortKeys[mid].compareTo(contact.getSortKey());
+                if (result < 0 || result == 0 && endIds[mid] < contact.getId()) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * 将预写日志中的内容合并回主数据库文件，应用进入后台时调用，避免日志文件持续增长
+     */
+    public void checkpoint() {
+        Cursor cursor = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(PASSIVE)", null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 批量写入的结果：写入行数、耗时和吞吐量
+     */
+    public static final class BulkInsertResult {
+        private final long rowsWritten;
+        private final long elapsedNanos;
+
+        BulkInsertResult(long rowsWritten, long elapsedNanos) {
+            this.rowsWritten = rowsWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        // 每秒写入的行数
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsWritten * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return rowsWritten + " 行, " + getElapsedMillis() + " ms, " + Math.round(getRowsPerSecond()) + " 行/秒";
+        }
+    }
+
+    /**
+     * 合并重复联系人的结果：合并的组数、删除的联系人数和耗时
+     */
+    public static final class MergeResult {
+        private final int groupsMerged;
+        private final int contactsRemoved;
+        private final long elapsedNanos;
+
+        MergeResult(int groupsMerged, int contactsRemoved, long elapsedNanos) {
+            this.groupsMerged = groupsMerged;
+            this.contactsRemoved = contactsRemoved;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getGroupsMerged() {
+            return groupsMerged;
+        }
+
+        public int getContactsRemoved() {
+            return contactsRemoved;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return groupsMerged + " 组, 删除 " + contactsRemoved + " 个联系人, " + getElapsedMillis() + " ms";
+        }
+    }
+}
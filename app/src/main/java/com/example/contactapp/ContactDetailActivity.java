@@ -1,7 +1,6 @@
 package com.example.contactapp;
 
 import android.content.Intent;
-import android.graphics.Color;
 
 import android.net.Uri;
 import android.os.Bundle;
@@ -63,7 +62,8 @@ public class ContactDetailActivity extends AppCompatActivity {
         pickImageLauncher = registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
                     if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                         Uri selectedImage = result.getData().getData();
-                        binding.imgContactPhoto.setImageURI(selectedImage);
+                        PhotoLoader.getInstance(this).load(binding.imgContactPhoto, selectedImage.toString(),
+                                binding.imgContactPhoto.getDrawable());
                         if (contact != null) {
                             contact.setPhotoUri(selectedImage.toString());
                         }
@@ -104,15 +104,15 @@ public class ContactDetailActivity extends AppCompatActivity {
             }
             else binding.spinnerGroup.setSelection(groupList.indexOf(contact.getGroup()));
 
+            AvatarDrawable avatar = new AvatarDrawable();
+            avatar.setContact(contact.getId(), contact.getName());
             if (contact.getPhotoUri() != null) {
-                // 如果有设置过照片URI，则显示照片
-                binding.imgContactPhoto.setImageURI(Uri.parse(contact.getPhotoUri()));
+                // 如果有设置过照片URI，在后台加载照片，加载完成前先显示文字头像
+                PhotoLoader.getInstance(this).load(binding.imgContactPhoto, contact.getPhotoUri(), avatar);
             } else {
-                // 如果未设置照片URI，使用联系人姓名的第一个字符生成位图显示
+                // 如果未设置照片URI，显示联系人姓名的第一个字符
                 if (!TextUtils.isEmpty(contact.getName())) {
-                    binding.imgContactPhoto.setImageBitmap(contact.createBitmapFromCharacter(
-                            contact.getName().charAt(0),  // 获取姓名的第一个字符
-                            500, Color.WHITE, 10));  // 设置位图参数
+                    binding.imgContactPhoto.setImageDrawable(avatar);
                 } else {
                     // 处理姓名为空的情况
                     binding.imgContactPhoto.setImageResource(R.drawable.rounded_item);  // 设置默认头像或者空白图片
@@ -123,8 +123,8 @@ public class ContactDetailActivity extends AppCompatActivity {
             if (getSupportActionBar() != null) {
                 getSupportActionBar().setTitle("新建联系人");  // 设置标题为新建联系人
             }
-            // 使用当前时间戳创建新的联系人对象
-            contact = new Contact(System.currentTimeMillis(), "", "", "", "", null);
+            // ID 为 0 表示新联系人，保存时使用数据库生成的ID
+            contact = new Contact(0, "", "", "", "", null);
             binding.etName.setHint("姓名");
             binding.etNickname.setHint("电子邮件");
             binding.etPhoneNumber.setHint("电话");
@@ -132,29 +132,28 @@ public class ContactDetailActivity extends AppCompatActivity {
     }
 
     private void saveContact() {
-        // 保存联系人逻辑（可以保存到数据库或其他持久化存储）
+        // 保存联系人逻辑，通过联系人仓库写入数据库，联系人列表会收到变化通知
         if (contact != null) {
             contact.setName(binding.etName.getText().toString());
             contact.setNickname(binding.etNickname.getText().toString());
             contact.setPhoneNumber(binding.etPhoneNumber.getText().toString());
             contact.setGroup((String) binding.spinnerGroup.getSelectedItem());
+            if (!contact.getName().isEmpty()) {
+                ContactRepository.getInstance(this).saveContact(contact);
+            } else if (contact.getId() > 0) {
+                // 姓名清空视为删除联系人
+                ContactRepository.getInstance(this).deleteContact(contact.getId());
+            }
         }
-        // 返回并传递更新的数据
-        Intent resultIntent = new Intent();
-        resultIntent.putExtra("updatedContact", contact);
-        setResult(RESULT_OK, resultIntent);
         // 返回主页面
         finish();
     }
 
     private void deleteContact() {
-        // 删除联系人逻辑
-        if (contact != null) {
-            contact.setName("");
+        // 删除联系人逻辑，新建的联系人尚未保存，直接返回
+        if (contact != null && contact.getId() > 0) {
+            ContactRepository.getInstance(this).deleteContact(contact.getId());
         }
-        Intent resultIntent = new Intent();
-        resultIntent.putExtra("updatedContact", contact);
-        setResult(RESULT_OK, resultIntent);
         finish();
     }
 
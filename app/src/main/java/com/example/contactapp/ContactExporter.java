@@ -1,44 +1,116 @@
 package com.example.contactapp;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
 import android.util.Log;
-import android.widget.Toast;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * 在后台线程把联系人导出为 UTF-8 编码的 CSV 文件。直接从数据库游标逐行写出，不在内存中保存联系人列表。
+ * 导出只读数据库，在读线程池上执行，导出期间保存和删除联系人不必等待。
+ */
 public class ContactExporter {
-    public static void exportContactsToUri(Context context, Uri uri) {
-        ContactDatabaseHelper dbHelper = new ContactDatabaseHelper(context);
-        List<Contact> contacts = dbHelper.getAllContacts();
+    private static final String TAG = "ContactExporter";
+    // 输出缓冲区大小
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 每写出多少行通知一次进度
+    private static final int PROGRESS_INTERVAL = 1000;
+    // 导出期间联系人被修改时最多导出几次
+    private static final int MAX_ATTEMPTS = 3;
 
+    /**
+     * 导出过程的回调，全部在主线程执行
+     */
+    public interface ExportListener {
+        void onProgress(long rowsWritten, long totalRows);
+
+        void onComplete(long rowsWritten);
+
+        void onError(Exception e);
+    }
+
+    public static void exportContactsToUri(Context context, Uri uri, ExportListener listener) {
+        Context appContext = context.getApplicationContext();
+        AppExecutors.dbRead().execute(() -> runExport(appContext, uri, listener));
+    }
+
+    private static void runExport(Context context, Uri uri, ExportListener listener) {
+        ContactDatabaseHelper dbHelper = ContactDatabaseHelper.getInstance(context);
         try {
-            OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
-            OutputStreamWriter writer = new OutputStreamWriter(outputStream);
-
-            // 写入 CSV 文件的头部
-            writer.append("ID,姓名,别名,电话,分组,图片\n");
-
-            // 逐行写入联系人数据
-            for (Contact contact : contacts) {
-                writer.append(String.valueOf(contact.getId())).append(",");
-                writer.append(contact.getName()).append(",");
-                writer.append(contact.getNickname()).append(",");
-                writer.append(contact.getPhoneNumber()).append(",");
-                writer.append(contact.getGroup()).append(",");
-                writer.append(contact.getPhotoUri()).append("\n");
+            // 读取时不加锁，导出期间联系人被修改时文件中的数据可能不是同一时刻的，清空文件重新导出
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                long rowsWritten = exportOnce(context, dbHelper, uri, listener);
+                if (rowsWritten >= 0) {
+                    Log.d(TAG, "导出完成: " + rowsWritten + " 行");
+                    AppExecutors.mainThread().execute(() -> listener.onComplete(rowsWritten));
+                    return;
+                }
+                Log.w(TAG, "导出期间联系人被修改，重新导出 (" + attempt + "/" + MAX_ATTEMPTS + ")");
+            }
+            throw new IOException("导出期间联系人一直在被修改，导出的文件不完整，请稍后重试");
+        } catch (Exception e) {
+            Log.e(TAG, "导出联系人失败", e);
+            AppExecutors.mainThread().execute(() -> listener.onError(e));
+        }
+    }
+
+    /**
+     * 把全部联系人写入文件，覆盖文件原有内容
+     *
+     * @return 写出的行数，导出期间联系人被修改时返回 -1
+     */
+    private static long exportOnce(Context context, ContactDatabaseHelper dbHelper, Uri uri,
+                                   ExportListener listener) throws IOException {
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri, "wt")) {
+            if (outputStream == null) {
+                throw new IOException("无法打开文件: " + uri);
             }
+            CsvWriter writer = new CsvWriter(new BufferedWriter(
+                    new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE));
 
-            writer.flush();
-            writer.close();
+            ContactCsv.writeHeader(writer);
 
-            Toast.makeText(context, "联系人导出成功!", Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            Log.e("ContactExporter", "导出联系人失败", e);
-            Toast.makeText(context, "导出联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            long start = PerfMetrics.begin(PerfMetrics.EXPORT);
+            long[] rowsWritten = new long[1];
+            boolean consistent;
+            try {
+                consistent = writeRows(dbHelper, writer, listener, rowsWritten);
+            } finally {
+                PerfMetrics.end(PerfMetrics.EXPORT, start, rowsWritten[0]);
+            }
+            return consistent ? rowsWritten[0] : -1;
         }
     }
-}
 
+    // 从数据库逐行写出联系人并刷新缓冲区，写出的行数记入 rowsWritten[0]；返回读取期间联系人是否没有被修改
+    private static boolean writeRows(ContactDatabaseHelper dbHelper, CsvWriter writer, ExportListener listener,
+                                     long[] rowsWritten) throws IOException {
+        boolean consistent = dbHelper.readContactsSnapshot(new ContactDatabaseHelper.SnapshotReader() {
+            private long totalRows;
+
+            @Override
+            public void onStart(long totalRows, long changeCount) {
+                this.totalRows = totalRows;
+            }
+
+            @Override
+            public void onRow(Cursor cursor) throws IOException {
+                // 列顺序与 ContactDatabaseHelper.SNAPSHOT_COLUMNS 一致
+                ContactCsv.writeRow(writer, cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5));
+                long rows = ++rowsWritten[0];
+                if (rows % PROGRESS_INTERVAL == 0) {
+                    AppExecutors.mainThread().execute(() -> listener.onProgress(rows, totalRows));
+                }
+            }
+        });
+        writer.flush();
+        return consistent;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.contactapp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 联系人ID到列表位置的索引，用于按ID定位联系人，不必逐个比较。
+ * 开放寻址（线性探测）的 long→int 哈希表，键和值都存放在基本类型数组中，查找和修改都不装箱。
+ * <p>
+ * 列表在某个位置插入、删除或移动联系人后，调用 {@link #reindex} 更新位置发生变化的那一段。
+ * 这段的长度与 ArrayList 本身移动元素的长度相同，不会增加修改列表的复杂度。
+ */
+final class ContactIdIndex {
+
+    // 空槽的标记，数据库生成的联系人ID从 1 开始，不会与它冲突
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] positions;
+    private int size;
+    // 容量减一，容量始终是 2 的幂
+    private int mask;
+
+    ContactIdIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * 按列表的当前内容重建索引
+     */
+    void rebuild(List<Contact> contacts) {
+        allocate(capacityFor(contacts.size()));
+        if (contacts instanceof ContactListSnapshot.ContactList) {
+            // 快照上的列表直接读取ID列，不为建索引创建联系人对象
+            ContactListSnapshot.ContactList snapshotContacts = (ContactListSnapshot.ContactList) contacts;
+            for (int i = 0; i < snapshotContacts.size(); i++) {
+                put(snapshotContacts.getId(i), i);
+            }
+            return;
+        }
+        for (int i = 0; i < contacts.size(); i++) {
+            put(contacts.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * 列表中 [from, to) 范围内的联系人位置已变化，重新记录它们的位置
+     */
+    void reindex(List<Contact> contacts, int from, int to) {
+        for (int i = from; i < to; i++) {
+            put(contacts.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * @return 联系人在列表中的位置，不存在时返回 -1
+     */
+    int get(long id) {
+        for (int slot = slotOf(id); ; slot = (slot + 1) & mask) {
+            long key = keys[slot];
+            if (key == id) {
+                return positions[slot];
+            }
+            if (key == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    void put(long id, int position) {
+        int slot = slotOf(id);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == id) {
+                positions[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        positions[slot] = position;
+        // 装载因子保持在一半以下，探测序列很短
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    void remove(long id) {
+        int slot = slotOf(id);
+        while (keys[slot] != id) {
+            if (keys[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // 后移删除：把之后探测链上的键前移填补空位，不使用删除标记，查找不会越来越慢
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            // home 不在 (free, next] 的循环区间内时，该键可以移到空位上
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                positions[free] = positions[next];
+                free = next;
+            }
+        }
+        keys[free] = FREE;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slotOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L; // 乘法散列，连续的ID也能均匀分布
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldPositions = positions;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldPositions[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        positions = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int capacityFor(int count) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < count * 2 + 1) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
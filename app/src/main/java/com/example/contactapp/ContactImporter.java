@@ -2,52 +2,134 @@ package com.example.contactapp;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.CancellationSignal;
 import android.util.Log;
-import android.widget.Toast;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * 在后台线程导入 CSV 联系人。文件边解析边分批写入数据库，不会把整个文件读入内存。
+ */
 public class ContactImporter {
-    public static void importContactsFromUri(Context context, Uri uri) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            List<Contact> contacts = new ArrayList<>();
-
-            // 读取 CSV 文件的头部
-            reader.readLine();
-
-            // 逐行读取 CSV 数据
-            while ((line = reader.readLine()) != null) {
-                String[] rowData = line.split(",");
-                if (rowData.length > 5) {
-                    long id = Long.parseLong(rowData[0]);
-                    String name = rowData[1];
-                    String nickname = rowData[2];
-                    String phoneNumber = rowData[3];
-                    String group = rowData[4];
-                    String photoUri = rowData[5];
-                    contacts.add(new Contact(id, name, nickname, phoneNumber, group, photoUri));
-                }
-            }
+    private static final String TAG = "ContactImporter";
+    // 每读取多少行通知一次进度
+    private static final int PROGRESS_INTERVAL = 500;
+
+    /**
+     * 导入过程的回调，全部在主线程执行
+     */
+    public interface ImportListener {
+        void onProgress(long rowsRead);
+
+        void onComplete(ContactDatabaseHelper.BulkInsertResult result);
 
-            reader.close();
+        void onCancelled(ContactDatabaseHelper.BulkInsertResult result);
 
-            // 将读取到的联系人存储到数据库或更新到界面上
-            ContactDatabaseHelper dbHelper = new ContactDatabaseHelper(context);
-            for (Contact contact : contacts) {
-                dbHelper.insertContact(contact);
+        void onError(Exception e);
+    }
+
+    /**
+     * 开始导入联系人
+     *
+     * @return 用于取消导入的信号
+     */
+    public static CancellationSignal importContactsFromUri(Context context, Uri uri, ImportListener listener) {
+        Context appContext = context.getApplicationContext();
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        AppExecutors.diskIO().execute(() -> runImport(appContext, uri, cancellationSignal, listener));
+        return cancellationSignal;
+    }
+
+    private static void runImport(Context context, Uri uri, CancellationSignal cancellationSignal, ImportListener listener) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                throw new IOException("无法打开文件: " + uri);
+            }
+            CsvReader reader = new CsvReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            // 跳过 CSV 文件的头部
+            reader.readRecord();
+
+            ContactDatabaseHelper dbHelper = ContactDatabaseHelper.getInstance(context);
+            ContactDatabaseHelper.BulkInsertResult result;
+            long start = PerfMetrics.begin(PerfMetrics.IMPORT);
+            long rowsWritten = 0;
+            try {
+                result = dbHelper.bulkInsertContacts(
+                        () -> new CsvContactIterator(reader, listener),
+                        ContactDatabaseHelper.DEFAULT_BULK_BATCH_SIZE, cancellationSignal);
+                rowsWritten = result.getRowsWritten();
+            } finally {
+                PerfMetrics.end(PerfMetrics.IMPORT, start, rowsWritten);
             }
+            Log.d(TAG, "导入结束: " + result);
 
-            Toast.makeText(context, "联系人导入成功!", Toast.LENGTH_SHORT).show();
+            if (cancellationSignal.isCanceled()) {
+                AppExecutors.mainThread().execute(() -> listener.onCancelled(result));
+            } else {
+                AppExecutors.mainThread().execute(() -> listener.onComplete(result));
+            }
         } catch (Exception e) {
-            Log.e("ContactImporter", "导入联系人失败", e);
-            Toast.makeText(context, "导入联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Exception cause = e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : e;
+            Log.e(TAG, "导入联系人失败", cause);
+            AppExecutors.mainThread().execute(() -> listener.onError(cause));
+        }
+    }
+
+    /**
+     * 逐条解析 CSV 记录并转换为联系人，列数不足的行会被跳过
+     */
+    private static class CsvContactIterator implements Iterator<Contact> {
+        private final CsvReader reader;
+        private final ImportListener listener;
+        private Contact next;
+        private long rowsRead;
+
+        CsvContactIterator(CsvReader reader, ImportListener listener) {
+            this.reader = reader;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            try {
+                // ID 由数据库重新生成
+                next = ContactCsv.readRow(reader, (name, nickname, phoneNumber, group, photoUri) ->
+                        new Contact(0, name, nickname, phoneNumber, group, photoUri));
+                if (next == null) {
+                    return false;
+                }
+                reportProgress();
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Contact next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Contact contact = next;
+            next = null;
+            return contact;
+        }
+
+        private void reportProgress() {
+            rowsRead++;
+            if (rowsRead % PROGRESS_INTERVAL == 0) {
+                long rows = rowsRead;
+                AppExecutors.mainThread().execute(() -> listener.onProgress(rows));
+            }
         }
     }
 }
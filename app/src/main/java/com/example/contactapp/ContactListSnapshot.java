@@ -0,0 +1,351 @@
+package com.example.contactapp;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 联系人列表的二进制快照文件，启动时不经过数据库直接显示列表。
+ * 按排序键排好序，按列存储ID、姓名、排序键、分组和照片URI；读取时整个文件映射到内存，
+ * 字符串只在取用时才创建。文件头记录格式版本、数据库版本和数据库的修改计数，
+ * 任何一项与当前不一致都说明快照已过期，此时应改为从数据库加载。
+ *
+ * <pre>
+ * 文件头: magic, 格式版本, 数据库版本 (int), 修改计数 (long), 联系人数, 分组数 (int)
+ * 列:     ID (long[n]), 分组下标 (int[n], 无分组为 -1),
+ *         姓名/排序键/照片URI 的结束偏移 (各 int[n]), 分组名的结束偏移 (int[分组数]),
+ *         姓名、排序键、照片URI、分组名的字符 (char[])
+ * </pre>
+ */
+public final class ContactListSnapshot {
+
+    private static final String TAG = "ContactListSnapshot";
+    public static final String FILE_NAME = "contacts.snapshot";
+
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    // 文件布局变化时递增，旧格式的快照直接丢弃
+    private static final int FORMAT_VERSION = 1;
+
+    private final int schemaVersion;
+    private final long changeCount;
+    private final int size;
+    private final LongBuffer ids;
+    private final IntBuffer groupIndexes;
+    private final IntBuffer nameEnds;
+    private final IntBuffer sortKeyEnds;
+    private final IntBuffer photoUriEnds;
+    private final CharBuffer names;
+    private final CharBuffer sortKeys;
+    private final CharBuffer photoUris;
+    private final String[] groups;
+
+    private ContactListSnapshot(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("不是可识别的快照文件");
+        }
+        schemaVersion = buffer.getInt();
+        changeCount = buffer.getLong();
+        size = buffer.getInt();
+        int groupCount = buffer.getInt();
+        ids = slice(buffer, size * 8).asLongBuffer();
+        groupIndexes = slice(buffer, size * 4).asIntBuffer();
+        nameEnds = slice(buffer, size * 4).asIntBuffer();
+        sortKeyEnds = slice(buffer, size * 4).asIntBuffer();
+        photoUriEnds = slice(buffer, size * 4).asIntBuffer();
+        IntBuffer groupEnds = slice(buffer, groupCount * 4).asIntBuffer();
+        names = slice(buffer, end(nameEnds, size) * 2).asCharBuffer();
+        sortKeys = slice(buffer, end(sortKeyEnds, size) * 2).asCharBuffer();
+        photoUris = slice(buffer, end(photoUriEnds, size) * 2).asCharBuffer();
+        CharBuffer groupNames = slice(buffer, end(groupEnds, groupCount) * 2).asCharBuffer();
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("快照文件长度不正确");
+        }
+        // 分组通常只有几个，直接创建字符串
+        groups = new String[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            groups[i] = substring(groupNames, groupEnds, i);
+        }
+    }
+
+    /**
+     * 映射并校验快照文件
+     *
+     * @return 快照，文件不存在、格式不对或已损坏时返回 null
+     */
+    public static ContactListSnapshot open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // 映射在通道关闭后仍然有效
+            return new ContactListSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "无法读取联系人快照，改为从数据库加载", e);
+            return null;
+        }
+    }
+
+    /**
+     * 快照是否与数据库一致：数据库版本和修改计数都相同
+     */
+    public boolean isCurrent(int currentSchemaVersion, long currentChangeCount) {
+        return schemaVersion == currentSchemaVersion && changeCount == currentChangeCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int index) {
+        return ids.get(index);
+    }
+
+    public String getName(int index) {
+        return substring(names, nameEnds, index);
+    }
+
+    public String getSortKey(int index) {
+        return substring(sortKeys, sortKeyEnds, index);
+    }
+
+    public String getGroup(int index) {
+        int group = groupIndexes.get(index);
+        return group < 0 ? null : groups[group];
+    }
+
+    public String getPhotoUri(int index) {
+        String photoUri = substring(photoUris, photoUriEnds, index);
+        return photoUri.isEmpty() ? null : photoUri;
+    }
+
+    /**
+     * 快照上的只读联系人列表，用于列表显示，不包含昵称和电话，需要完整信息时按ID从数据库读取。
+     * 联系人对象在第一次取用时才创建，启动时不必为每一行创建对象和字符串。
+     */
+    public ContactList asList() {
+        return new ContactList(this);
+    }
+
+    // 按排序键首字母计算字母索引，只读取每一行的第一个字符
+    private SectionIndex readSections() {
+        SectionIndex.Builder builder = new SectionIndex.Builder();
+        int runStart = 0;
+        char runFirst = 0;
+        for (int i = 0; i < size; i++) {
+            char first = firstChar(sortKeys, sortKeyEnds, i);
+            if (i == 0 || first != runFirst) {
+                builder.add(String.valueOf(runFirst), i - runStart);
+                runStart = i;
+                runFirst = first;
+            }
+        }
+        builder.add(String.valueOf(runFirst), size - runStart);
+        return builder.build();
+    }
+
+    private Contact toContact(int index) {
+        Contact contact = new Contact(getId(index), getName(index), null, null, getGroup(index), getPhotoUri(index));
+        contact.setSortKey(getSortKey(index));
+        return contact;
+    }
+
+    /**
+     * 从数据库读取当前的联系人列表写入快照文件。
+     * 先写临时文件再改名，读取方不会看到写了一半的文件。在后台线程调用。
+     */
+    public static void write(ContactDatabaseHelper dbHelper, int schemaVersion, File file) throws IOException {
+        Columns columns = new Columns();
+        dbHelper.readContactsSnapshot(new ContactDatabaseHelper.SnapshotReader() {
+            @Override
+            public void onStart(long totalRows, long changeCount) {
+                // 读取开始前的计数：读取期间有写入时数据库的计数已经变大，这份快照下次启动会被判定为过期
+                columns.changeCount = changeCount;
+            }
+
+            @Override
+            public void onRow(Cursor cursor) {
+                columns.add(cursor.getLong(0), cursor.getString(1), cursor.getString(6),
+                        cursor.getString(4), cursor.getString(5));
+            }
+        });
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            columns.writeTo(out, schemaVersion);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法替换快照文件: " + file);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static int end(IntBuffer ends, int count) {
+        return count == 0 ? 0 : ends.get(count - 1);
+    }
+
+    private static String substring(CharBuffer chars, IntBuffer ends, int index) {
+        int start = index == 0 ? 0 : ends.get(index - 1);
+        return chars.subSequence(start, ends.get(index)).toString();
+    }
+
+    // 空字符串返回 0
+    private static char firstChar(CharBuffer chars, IntBuffer ends, int index) {
+        int start = index == 0 ? 0 : ends.get(index - 1);
+        return start < ends.get(index) ? chars.get(start) : 0;
+    }
+
+    /**
+     * 按位置读取快照的只读联系人列表。取用某一行时才创建联系人对象，之后一直使用同一个对象；
+     * 主线程和过滤线程可以同时读取。ID 和字母索引直接从快照的列中读取，不创建联系人对象。
+     */
+    public static final class ContactList extends AbstractList<Contact> implements RandomAccess {
+        private final ContactListSnapshot snapshot;
+        private final AtomicReferenceArray<Contact> contacts;
+        private final SectionIndex sections;
+
+        private ContactList(ContactListSnapshot snapshot) {
+            this.snapshot = snapshot;
+            contacts = new AtomicReferenceArray<>(snapshot.size());
+            sections = snapshot.readSections();
+        }
+
+        @Override
+        public Contact get(int index) {
+            Contact contact = contacts.get(index);
+            if (contact == null) {
+                contact = snapshot.toContact(index);
+                // 两个线程同时创建时保留先放入的那个
+                if (!contacts.compareAndSet(index, null, contact)) {
+                    contact = contacts.get(index);
+                }
+            }
+            return contact;
+        }
+
+        @Override
+        public int size() {
+            return contacts.length();
+        }
+
+        public long getId(int index) {
+            return snapshot.getId(index);
+        }
+
+        public SectionIndex getSections() {
+            return sections;
+        }
+    }
+
+    /**
+     * 写入前在内存中按列收集数据
+     */
+    private static final class Columns {
+        long changeCount;
+        private long[] ids = new long[256];
+        private int[] groupIndexes = new int[256];
+        private int[] nameEnds = new int[256];
+        private int[] sortKeyEnds = new int[256];
+        private int[] photoUriEnds = new int[256];
+        private final StringBuilder names = new StringBuilder();
+        private final StringBuilder sortKeys = new StringBuilder();
+        private final StringBuilder photoUris = new StringBuilder();
+        private final Map<String, Integer> groupIndexByName = new HashMap<>();
+        private final List<String> groups = new ArrayList<>();
+        private int size;
+
+        void add(long id, String name, String sortKey, String group, String photoUri) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                groupIndexes = Arrays.copyOf(groupIndexes, capacity);
+                nameEnds = Arrays.copyOf(nameEnds, capacity);
+                sortKeyEnds = Arrays.copyOf(sortKeyEnds, capacity);
+                photoUriEnds = Arrays.copyOf(photoUriEnds, capacity);
+            }
+            ids[size] = id;
+            groupIndexes[size] = indexOfGroup(group);
+            nameEnds[size] = append(names, name);
+            sortKeyEnds[size] = append(sortKeys, sortKey);
+            photoUriEnds[size] = append(photoUris, photoUri);
+            size++;
+        }
+
+        private int indexOfGroup(String group) {
+            if (group == null) {
+                return -1;
+            }
+            Integer index = groupIndexByName.get(group);
+            if (index == null) {
+                index = groups.size();
+                groupIndexByName.put(group, index);
+                groups.add(group);
+            }
+            return index;
+        }
+
+        private static int append(StringBuilder chars, String value) {
+            if (value != null) {
+                chars.append(value);
+            }
+            return chars.length();
+        }
+
+        void writeTo(DataOutputStream out, int schemaVersion) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(schemaVersion);
+            out.writeLong(changeCount);
+            out.writeInt(size);
+            out.writeInt(groups.size());
+            for (int i = 0; i < size; i++) {
+                out.writeLong(ids[i]);
+            }
+            writeInts(out, groupIndexes, size);
+            writeInts(out, nameEnds, size);
+            writeInts(out, sortKeyEnds, size);
+            writeInts(out, photoUriEnds, size);
+            StringBuilder groupNames = new StringBuilder();
+            for (String group : groups) {
+                out.writeInt(append(groupNames, group));
+            }
+            out.writeChars(names.toString());
+            out.writeChars(sortKeys.toString());
+            out.writeChars(photoUris.toString());
+            out.writeChars(groupNames.toString());
+        }
+
+        private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.contactapp;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 联系人很多时代替完整内存列表的分页列表。
+ * 每页按排序键做键集查询，滚动到哪里才加载哪里，内存中只保留最近访问位置附近的几页。
+ * 列表重新开始时沿排序键索引记下每一页的边界（前一页最后一行的排序键和ID），之后跳到任何位置都从边界直接定位，
+ * 不需要 OFFSET 跳过中间的行。每页是相邻两个边界之间的范围，行数可以变化：单个联系人的增删改直接放进所在页并按位置通知，
+ * 已加载的行保持显示；加载到的行数与预计不同（期间有增删）时以加载结果为准，移动之后各页的位置。
+ * 分组筛选同样通过分页查询完成；搜索时先把匹配的联系人ID按排序键排好序，每页按位置截取ID读取。
+ * 查询在读线程池中并行执行，列表重新开始时取消尚未完成的查询。除后台加载外，所有方法都在主线程调用。
+ */
+public class ContactPagedList {
+
+    // 每页的联系人数量
+    static final int PAGE_SIZE = 100;
+    // 内存中最多保留的页数，超出时丢弃离最近访问位置最远的页
+    private static final int MAX_LOADED_PAGES = 8;
+    // 距离页首或页尾不足该行数时预加载相邻的页
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 4;
+
+    private static final PinyinComparator SORT_COMPARATOR = new PinyinComparator();
+
+    public interface Callback {
+        // 筛选条件变化或重新加载后列表整体重新开始，之前的位置都已失效
+        void onListReset();
+
+        // 字母索引变化
+        void onSectionsChanged(SectionIndex sections);
+
+        // 一段位置上的联系人已加载或已修改
+        void onItemRangeChanged(int start, int count);
+
+        void onItemRangeInserted(int start, int count);
+
+        void onItemRangeRemoved(int start, int count);
+    }
+
+    private final ContactDao dao;
+    private final ContactDatabaseHelper dbHelper;
+    private final ContactAdapter.ContactSearcher searcher;
+    private final Callback callback;
+
+    private final Map<Integer, List<Contact>> pages = new HashMap<>();
+    private final Map<Integer, PageLoad> loadingPages = new HashMap<>();
+    // 每页的起始位置，比页数多一项，最后一项为总行数；联系人增删或加载到的行数与预计不同时，之后各页随之移动
+    private int[] pageStarts = {0, 0};
+    private ContactDao.Task<Query> refreshTask;
+    private ContactDao.Task<SectionIndex> sectionsTask;
+    private Query query = Query.EMPTY;
+    private SectionIndex sections = SectionIndex.EMPTY;
+    // 每次列表重新开始时递增，之前发出的加载请求返回后直接丢弃
+    private int generation;
+    // 每次请求刷新时递增，只应用最后一次刷新的结果
+    private int refreshRequest;
+    // 后台加载时读取，已经滚出很远的页不再查询
+    private volatile int lastAccessedPage;
+    // 刷新时先加载这个位置附近的页
+    private int lastAccessedPosition;
+
+    private String nameFilter;
+    private String groupFilter;
+
+    public ContactPagedList(ContactDao dao, ContactAdapter.ContactSearcher searcher, Callback callback) {
+        this.dao = dao;
+        this.dbHelper = dao.getDatabaseHelper();
+        this.searcher = searcher;
+        this.callback = callback;
+    }
+
+    public void setFilter(String name, String group) {
+        this.nameFilter = name;
+        this.groupFilter = group;
+        refresh();
+    }
+
+    /**
+     * 重新计算筛选结果的分页边界并替换已加载的页，在筛选条件变化或数据被批量修改后调用。
+     * 替换之前先在后台加载当前位置附近的页，可见的行直接换成新数据，不会先变成占位行。
+     */
+    public void refresh() {
+        int request = ++refreshRequest;
+        String name = nameFilter;
+        String group = groupFilter;
+        int position = lastAccessedPosition;
+        if (refreshTask != null) {
+            refreshTask.cancel(false); // 连续输入时尚未开始的统计直接跳过
+        }
+        refreshTask = dao.read(() -> {
+            ContactDatabaseHelper.ContactSelection newSelection = ContactDatabaseHelper.ContactSelection.of(group);
+            Query newQuery = TextUtils.isEmpty(name)
+                    ? new Query(newSelection, dbHelper.getPageAnchors(newSelection), null)
+                    : new Query(newSelection, ContactDatabaseHelper.PageAnchors.EMPTY,
+                    dbHelper.getMatchedContacts(newSelection, searcher.search(name)));
+            int page = Math.min(position / PAGE_SIZE, newQuery.pageCount() - 1);
+            for (int i = Math.max(0, page - 1); i <= Math.min(page + 1, newQuery.pageCount() - 1); i++) {
+                newQuery.preloadedPages.put(i, newQuery.load(dbHelper, i));
+            }
+            return newQuery;
+        }, newQuery -> {
+            if (request != refreshRequest) {
+                return; // 之后又有新的刷新请求，这次的结果已过期
+            }
+            generation++;
+            query = newQuery;
+            sections = newQuery.getSections();
+            pageStarts = newQuery.initialPageStarts();
+            pages.clear();
+            for (PageLoad load : loadingPages.values()) {
+                load.task.cancel(false);
+            }
+            loadingPages.clear();
+            if (sectionsTask != null) {
+                sectionsTask.cancel(false);
+            }
+            for (Map.Entry<Integer, List<Contact>> page : newQuery.preloadedPages.entrySet()) {
+                setPage(page.getKey(), page.getValue(), false);
+            }
+            callback.onListReset();
+        });
+    }
+
+    public int size() {
+        return pageStarts[pageStarts.length - 1];
+    }
+
+    /**
+     * 获取指定位置的联系人，所在页尚未加载时返回 null 并开始加载
+     */
+    public Contact get(int position) {
+        int page = pageAt(position);
+        int offset = position - pageStarts[page];
+        lastAccessedPage = page;
+        lastAccessedPosition = position;
+        if (offset < PREFETCH_DISTANCE) {
+            loadPage(page - 1);
+        } else if (offset >= pageStarts[page + 1] - pageStarts[page] - PREFETCH_DISTANCE) {
+            loadPage(page + 1);
+        }
+        List<Contact> rows = pages.get(page);
+        if (rows == null) {
+            loadPage(page);
+            return null;
+        }
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * 当前筛选结果的字母索引
+     */
+    public SectionIndex getSections() {
+        return sections;
+    }
+
+    /**
+     * 联系人已写入数据库。没有搜索时直接放到所在页的有序位置，搜索时重新查询匹配结果
+     */
+    public void onContactInserted(Contact contact) {
+        if (query.matches != null) {
+            refresh();
+            return;
+        }
+        reloadLoadingPages();
+        int position = insert(contact);
+        if (position != -1) {
+            callback.onItemRangeInserted(position, 1);
+            requestSections();
+        }
+    }
+
+    /**
+     * 联系人已在数据库中修改。排序位置不变时只刷新这一行，否则从原位置移到新位置
+     */
+    public void onContactUpdated(Contact contact) {
+        if (query.matches != null) {
+            refresh();
+            return;
+        }
+        reloadLoadingPages();
+        int removed = remove(contact.getId());
+        int inserted = insert(contact);
+        if (removed != -1 && removed == inserted) {
+            callback.onItemRangeChanged(removed, 1);
+        } else {
+            if (removed != -1) {
+                callback.onItemRangeRemoved(removed, 1);
+            }
+            if (inserted != -1) {
+                callback.onItemRangeInserted(inserted, 1);
+            }
+        }
+        requestSections(); // 排序键的首字母可能已变化
+    }
+
+    /**
+     * 联系人已从数据库删除
+     */
+    public void onContactDeleted(long contactId) {
+        if (query.matches != null) {
+            refresh();
+            return;
+        }
+        reloadLoadingPages();
+        int position = remove(contactId);
+        if (position != -1) {
+            callback.onItemRangeRemoved(position, 1);
+        }
+        requestSections();
+    }
+
+    // 把联系人放进所在页，返回它的位置；不满足筛选条件时返回 -1。所在页未加载时只增加该页的行数，加载时自然读到它
+    private int insert(Contact contact) {
+        if (!query.selection.contains(contact)) {
+            return -1;
+        }
+        int page = query.anchors.pageOf(contact);
+        List<Contact> rows = pages.get(page);
+        int index = 0;
+        if (rows != null) {
+            index = Collections.binarySearch(rows, contact, SORT_COMPARATOR);
+            index = index < 0 ? -index - 1 : index;
+            rows.add(index, contact);
+        }
+        shiftPagesAfter(page, 1);
+        return pageStarts[page] + index;
+    }
+
+    // 从已加载的页中移除联系人，返回它原来的位置；不在已加载的页中时返回 -1，
+    // 它所在的页之后加载时行数比预计少一行，届时再修正
+    private int remove(long contactId) {
+        for (Map.Entry<Integer, List<Contact>> page : pages.entrySet()) {
+            List<Contact> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getId() == contactId) {
+                    rows.remove(i);
+                    shiftPagesAfter(page.getKey(), -1);
+                    return pageStarts[page.getKey()] + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // 第 page 页的行数变化 delta，之后各页的起始位置随之移动
+    private void shiftPagesAfter(int page, int delta) {
+        for (int i = page + 1; i < pageStarts.length; i++) {
+            pageStarts[i] += delta;
+        }
+    }
+
+    // 正在进行的查询可能在这次修改之前读取，结果不再可信，重新查询
+    private void reloadLoadingPages() {
+        List<Integer> reloading = new ArrayList<>(loadingPages.keySet());
+        for (int page : reloading) {
+            loadingPages.remove(page).task.cancel(false);
+            loadPage(page);
+        }
+    }
+
+    // 联系人增删后重新读取字母索引，分区计数表只有几十行
+    private void requestSections() {
+        if (query.matches != null) {
+            return; // 搜索结果的字母索引在下一次刷新时重新计算
+        }
+        if (sectionsTask != null) {
+            sectionsTask.cancel(false);
+        }
+        int sectionsGeneration = generation;
+        ContactDatabaseHelper.ContactSelection selection = query.selection;
+        sectionsTask = dao.read(() -> dbHelper.getSectionIndex(selection), newSections -> {
+            if (sectionsGeneration == generation) {
+                sections = newSections;
+                callback.onSectionsChanged(newSections);
+            }
+        });
+    }
+
+    // 包含 position 的页：起始位置不超过 position 的最后一页，行数为 0 的页因此不会被选中
+    private int pageAt(int position) {
+        int low = 0;
+        int high = pageStarts.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void loadPage(int page) {
+        if (page < 0 || page >= pageStarts.length - 1 || pages.containsKey(page) || loadingPages.containsKey(page)) {
+            return;
+        }
+        int loadGeneration = generation;
+        Query pageQuery = query;
+        PageLoad load = new PageLoad();
+        loadingPages.put(page, load);
+        load.task = dao.read(() -> {
+            // 快速滚动时排队的请求可能已经离开视口，不再查询
+            return Math.abs(page - lastAccessedPage) > MAX_LOADED_PAGES / 2 ? null : pageQuery.load(dbHelper, page);
+        }, rows -> {
+            if (loadGeneration != generation || loadingPages.get(page) != load) {
+                return; // 列表已重新开始，或者这次查询之后又有修改，已经重新查询
+            }
+            loadingPages.remove(page);
+            if (rows != null) {
+                setPage(page, rows, true);
+                evictDistantPages();
+            }
+        });
+    }
+
+    // 放入加载到的一页。行数与预计不同说明期间有联系人增删，或者之前删除的联系人不在已加载的页中：
+    // 以加载到的为准，之后各页随之移动，不会留下永远加载不到的占位行
+    private void setPage(int page, List<Contact> rows, boolean notify) {
+        pages.put(page, rows);
+        int start = pageStarts[page];
+        int expected = pageStarts[page + 1] - start;
+        int loaded = rows.size();
+        if (loaded != expected) {
+            shiftPagesAfter(page, loaded - expected);
+            if (notify) {
+                requestSections();
+            }
+        }
+        if (!notify) {
+            return;
+        }
+        if (loaded < expected) {
+            callback.onItemRangeRemoved(start + loaded, expected - loaded);
+        } else if (loaded > expected) {
+            callback.onItemRangeInserted(start + expected, loaded - expected);
+        }
+        callback.onItemRangeChanged(start, Math.min(loaded, expected));
+    }
+
+    private void evictDistantPages() {
+        while (pages.size() > MAX_LOADED_PAGES) {
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest == -1 || Math.abs(page - lastAccessedPage) > Math.abs(farthest - lastAccessedPage)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+        }
+    }
+
+    // 一页正在进行的查询，结果返回时据此判断它是否已被取代
+    private static final class PageLoad {
+        ContactDao.Task<List<Contact>> task;
+    }
+
+    /**
+     * 一次刷新得到的查询条件和分页边界，搜索时还有排好序的搜索结果，以及刷新时预先加载的页
+     */
+    private static final class Query {
+        static final Query EMPTY = new Query(ContactDatabaseHelper.ContactSelection.of(null),
+                ContactDatabaseHelper.PageAnchors.EMPTY, null);
+
+        final ContactDatabaseHelper.ContactSelection selection;
+        final ContactDatabaseHelper.PageAnchors anchors;
+        // 没有搜索时为 null
+        final ContactDatabaseHelper.MatchedContacts matches;
+        // 只在刷新的后台任务中写入，之后交给主线程
+        final Map<Integer, List<Contact>> preloadedPages = new HashMap<>();
+
+        Query(ContactDatabaseHelper.ContactSelection selection, ContactDatabaseHelper.PageAnchors anchors,
+              ContactDatabaseHelper.MatchedContacts matches) {
+            this.selection = selection;
+            this.anchors = anchors;
+            this.matches = matches;
+        }
+
+        SectionIndex getSections() {
+            return matches != null ? matches.getSections() : anchors.getSections();
+        }
+
+        int pageCount() {
+            return matches != null ? Math.max(1, (matches.size() + PAGE_SIZE - 1) / PAGE_SIZE)
+                    : anchors.getPageCount();
+        }
+
+        // 刷新时每页都是 PAGE_SIZE 行，最后一页是剩余的行
+        int[] initialPageStarts() {
+            int rows = matches != null ? matches.size() : anchors.getTotalRows();
+            int[] starts = new int[pageCount() + 1];
+            for (int i = 1; i < starts.length; i++) {
+                starts[i] = Math.min(i * PAGE_SIZE, rows);
+            }
+            return starts;
+        }
+
+        // 在读线程中查询第 page 页
+        List<Contact> load(ContactDatabaseHelper dbHelper, int page) {
+            if (matches != null) {
+                int from = page * PAGE_SIZE;
+                return dbHelper.getContactsByIds(matches.getIds(), from, Math.min(from + PAGE_SIZE, matches.size()));
+            }
+            return dbHelper.getContactsBetween(selection, anchors.getSortKeyBefore(page), anchors.getIdBefore(page),
+                    anchors.getSortKeyBefore(page + 1), anchors.getIdBefore(page + 1));
+        }
+    }
+}
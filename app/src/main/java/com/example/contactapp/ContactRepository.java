@@ -0,0 +1,363 @@
+package com.example.contactapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 界面与数据库之间唯一的联系人数据入口。
+ * 在内存中保存按排序键排好序的完整联系人列表，作为界面显示的依据；
+ * 增删改同时写入数据库和内存，新增联系人使用数据库生成的ID，并逐个通知监听者，不再整表重新读取。
+ * 同时负责维护拼音搜索索引和启动快照文件。
+ * <p>
+ * 联系人很多时进入分页模式，内存中不保留完整列表，由分页列表按需从数据库读取，变化事件照常发出。
+ * 公开方法和监听回调都在主线程执行，数据库读写通过 {@link ContactDao} 在后台进行，写操作按调用顺序执行。
+ */
+public class ContactRepository {
+
+    private static final String TAG = "ContactRepository";
+    // 联系人超过该数量时改为分页加载，不在内存中保留完整列表
+    static final int PAGING_THRESHOLD = 5000;
+    // 冷启动时优先加载的联系人数量，足够填满第一屏
+    private static final int FIRST_SCREEN_SIZE = 50;
+
+    private static final PinyinComparator SORT_COMPARATOR = new PinyinComparator();
+
+    private static ContactRepository instance;
+
+    /**
+     * 联系人变化的监听者，所有回调都在主线程执行
+     */
+    public interface Listener {
+        // 整个列表被替换：启动加载的各个阶段、导入或分组批量修改之后
+        void onContactsReset(List<Contact> contacts);
+
+        void onContactInserted(Contact contact);
+
+        void onContactUpdated(Contact contact);
+
+        void onContactDeleted(long contactId);
+    }
+
+    private final ContactDatabaseHelper dbHelper;
+    private final ContactDao dao;
+    private final File snapshotFile;
+    // 拼音首字母/全拼搜索索引，与数据库同步更新
+    private final PinyinSearchIndex pinyinIndex = new PinyinSearchIndex();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 已经提交到写线程、尚未开始执行的快照更新，连续保存或删除时只排队一次
+    private final AtomicBoolean snapshotUpdatePending = new AtomicBoolean();
+
+    // 以下字段只在主线程访问
+    private List<Contact> contacts = new ArrayList<>();
+    // contacts 中联系人ID到位置的索引
+    private final ContactIdIndex contactIndex = new ContactIdIndex();
+    private boolean paging;
+    private boolean loadStarted;
+    private boolean loaded;
+
+    private ContactRepository(Context context) {
+        dbHelper = ContactDatabaseHelper.getInstance(context);
+        dao = ContactDao.getInstance(context);
+        snapshotFile = new File(context.getFilesDir(), ContactListSnapshot.FILE_NAME);
+    }
+
+    public static synchronized ContactRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ContactRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 当前显示的联系人列表（只读），加载完成前可能只是快照或第一屏，分页模式下为空
+     */
+    public List<Contact> getContacts() {
+        return contacts instanceof ContactListSnapshot.ContactList ? contacts : Collections.unmodifiableList(contacts);
+    }
+
+    // 分页模式下内存中没有完整列表，界面应改为从数据库分页读取
+    public boolean isPaging() {
+        return paging;
+    }
+
+    // 完整列表是否已经加载，之前回调的列表可能只是快照或第一屏
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 开始加载联系人：有快照文件时不经过数据库先显示快照，快照与数据库一致时不再读取完整列表；
+     * 没有快照时先读取指定分组的第一屏尽快显示，再读取完整列表替换；最后构建拼音索引。
+     * 每个阶段通过 {@link Listener#onContactsReset} 通知。已经开始加载时只把当前列表再通知一次。
+     *
+     * @param firstScreenGroup 没有快照时第一屏使用的分组筛选
+     */
+    public void load(String firstScreenGroup) {
+        if (loadStarted) {
+            if (loaded || !contacts.isEmpty()) {
+                dispatchReset();
+            }
+            return;
+        }
+        loadStarted = true;
+        // 与写操作在同一个线程中执行，读到的完整列表与之后的增删改事件顺序一致
+        AppExecutors.diskIO().execute(() -> {
+            // 在读取快照和数据库之前开始重建，之后的增删改会在重建完成时重放
+            PinyinSearchIndex.Builder indexBuilder = pinyinIndex.newBuilder();
+            ContactListSnapshot snapshot = ContactListSnapshot.open(snapshotFile);
+            if (snapshot != null) {
+                // 只读列表，行在显示时才创建；主线程第一次修改时才复制
+                List<Contact> snapshotContacts = snapshot.asList();
+                AppExecutors.mainThread().execute(() -> reset(snapshotContacts, false, false));
+            }
+            boolean usePaging = dbHelper.getContactCount() > PAGING_THRESHOLD;
+            if (usePaging) {
+                snapshotFile.delete(); // 分页模式不使用快照
+                AppExecutors.mainThread().execute(() -> reset(new ArrayList<>(), true, true));
+                // 拼音索引仍需要全部姓名，逐行读取，不创建完整的联系人列表
+                dbHelper.readContactNames(indexBuilder::add);
+            } else if (snapshot != null && snapshot.isCurrent(ContactDatabaseHelper.DATABASE_VERSION, dbHelper.getChangeCount())) {
+                AppExecutors.mainThread().execute(() -> {
+                    loaded = true;
+                    dispatchReset();
+                });
+                for (int i = 0; i < snapshot.size(); i++) {
+                    indexBuilder.add(snapshot.getId(i), snapshot.getName(i));
+                }
+            } else {
+                if (snapshot == null) {
+                    List<Contact> firstScreen = dbHelper.getContactsPage(
+                            ContactDatabaseHelper.ContactSelection.of(firstScreenGroup), null, 0, FIRST_SCREEN_SIZE);
+                    AppExecutors.mainThread().execute(() -> reset(firstScreen, false, false));
+                }
+                // 没有快照或快照已过期，以数据库为准
+                List<Contact> allContacts = dbHelper.getAllContacts();
+                indexBuilder.addAll(allContacts); // 交给主线程之前取出姓名，之后主线程会修改这个列表
+                AppExecutors.mainThread().execute(() -> reset(allContacts, false, true));
+                writeSnapshot();
+            }
+            // 拼音索引构建完成前搜索只使用全文索引
+            pinyinIndex.rebuild(indexBuilder);
+            StartupTimings.mark(StartupTimings.SEARCH_INDEX_READY);
+        });
+    }
+
+    /**
+     * 在数据库被批量修改（导入、分组重命名或删除）之后重新读取完整列表，
+     * 排在之前提交到后台线程的写操作之后执行。联系人数量跨过阈值时切换分页模式。
+     */
+    public void reload() {
+        loadStarted = true;
+        AppExecutors.diskIO().execute(() -> {
+            PinyinSearchIndex.Builder indexBuilder = pinyinIndex.newBuilder();
+            boolean usePaging = dbHelper.getContactCount() > PAGING_THRESHOLD;
+            if (usePaging) {
+                dbHelper.readContactNames(indexBuilder::add);
+                pinyinIndex.rebuild(indexBuilder);
+                snapshotFile.delete();
+                AppExecutors.mainThread().execute(() -> reset(new ArrayList<>(), true, true));
+                return;
+            }
+            List<Contact> allContacts = dbHelper.getAllContacts();
+            indexBuilder.addAll(allContacts);
+            pinyinIndex.rebuild(indexBuilder);
+            writeSnapshot();
+            AppExecutors.mainThread().execute(() -> reset(allContacts, false, true));
+        });
+    }
+
+    /**
+     * 保存联系人：ID 为 0 时新增，使用数据库生成的ID；否则更新已有联系人
+     */
+    public void saveContact(Contact contact) {
+        Contact saved = copyOf(contact);
+        if (saved.getId() <= 0) {
+            dao.insertContact(saved, id -> {
+                if (id == -1) {
+                    Log.w(TAG, "插入联系人失败: " + saved.getName());
+                    return;
+                }
+                saved.setId(id);
+                pinyinIndex.putContact(saved);
+                applyInsert(saved);
+                saveSnapshot();
+            });
+        } else {
+            dao.updateContact(saved, rows -> {
+                if (rows == 0) {
+                    return; // 联系人已在别处被删除
+                }
+                pinyinIndex.putContact(saved);
+                applyUpdate(saved);
+                saveSnapshot();
+            });
+        }
+    }
+
+    public void deleteContact(long contactId) {
+        dao.deleteContact(contactId, rows -> {
+            if (rows == 0) {
+                return;
+            }
+            pinyinIndex.removeContact(contactId);
+            applyDelete(contactId);
+            saveSnapshot();
+        });
+    }
+
+    /**
+     * 读取完整的联系人信息。列表中的联系人可能来自快照，不含昵称和电话，编辑前需要重新读取。
+     *
+     * @param callback 在主线程回调，联系人不存在时不回调
+     * @return 可用于取消读取，例如界面已经关闭
+     */
+    public ContactDao.Task<Contact> loadContact(long contactId, ContactCallback callback) {
+        return dao.getContact(contactId, contact -> {
+            if (contact != null) {
+                callback.onContactLoaded(contact);
+            }
+        });
+    }
+
+    public interface ContactCallback {
+        void onContactLoaded(Contact contact);
+    }
+
+    /**
+     * 合并全文索引（姓名、昵称、电话前缀）和拼音索引（首字母、全拼前缀）的搜索结果，在后台线程调用
+     */
+    public long[] search(String query) {
+        long[] textIds = dbHelper.searchContactIds(query);
+        long[] pinyinIds = pinyinIndex.search(query);
+        long[] ids = Arrays.copyOf(textIds, textIds.length + pinyinIds.length);
+        System.arraycopy(pinyinIds, 0, ids, textIds.length, pinyinIds.length);
+        return ids;
+    }
+
+    private void reset(List<Contact> newContacts, boolean newPaging, boolean complete) {
+        contacts = newContacts;
+        contactIndex.rebuild(newContacts);
+        paging = newPaging;
+        loaded = loaded || complete;
+        dispatchReset();
+    }
+
+    private void dispatchReset() {
+        for (Listener listener : listeners) {
+            listener.onContactsReset(getContacts());
+        }
+    }
+
+    private void applyInsert(Contact contact) {
+        if (contactIndex.get(contact.getId()) != -1) {
+            // 同时进行的完整加载已经读到了这个联系人
+            applyUpdate(contact);
+            return;
+        }
+        if (!paging) {
+            List<Contact> contacts = mutableContacts();
+            int position = findInsertPosition(contact);
+            contacts.add(position, contact); // 按排序键插入到有序位置
+            contactIndex.reindex(contacts, position, contacts.size());
+        }
+        for (Listener listener : listeners) {
+            listener.onContactInserted(contact);
+        }
+    }
+
+    private void applyUpdate(Contact contact) {
+        int index = contactIndex.get(contact.getId());
+        if (index != -1) {
+            List<Contact> contacts = mutableContacts();
+            contacts.remove(index);
+            int position = findInsertPosition(contact);
+            contacts.add(position, contact); // 姓名可能已修改，重新放到有序位置
+            contactIndex.reindex(contacts, Math.min(index, position), Math.max(index, position) + 1);
+        }
+        for (Listener listener : listeners) {
+            listener.onContactUpdated(contact);
+        }
+    }
+
+    private void applyDelete(long contactId) {
+        int index = contactIndex.get(contactId);
+        if (index != -1) {
+            List<Contact> contacts = mutableContacts();
+            contacts.remove(index);
+            contactIndex.remove(contactId);
+            contactIndex.reindex(contacts, index, contacts.size());
+        }
+        for (Listener listener : listeners) {
+            listener.onContactDeleted(contactId);
+        }
+    }
+
+    // 快照上的列表是只读的，第一次增删改时复制为普通列表
+    private List<Contact> mutableContacts() {
+        if (contacts instanceof ContactListSnapshot.ContactList) {
+            contacts = new ArrayList<>(contacts);
+        }
+        return contacts;
+    }
+
+    // 二分查找联系人在有序列表中的插入位置
+    private int findInsertPosition(Contact contact) {
+        int position = Collections.binarySearch(contacts, contact, SORT_COMPARATOR);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    // 在写线程中更新快照，排在刚提交的写操作之后，界面不用等待快照写完。
+    // 已有更新在排队时不再提交：它还没开始执行，执行时读到的数据库已经包含这次修改
+    private void saveSnapshot() {
+        if (!snapshotUpdatePending.compareAndSet(false, true)) {
+            return;
+        }
+        dao.write(() -> {
+            snapshotUpdatePending.set(false); // 先清除标记，读取期间之后的修改会再排队一次
+            updateSnapshot();
+            return null;
+        }, null);
+    }
+
+    // 在后台线程调用：分页模式删除快照，否则按数据库的当前内容重新写入
+    private void updateSnapshot() {
+        if (dbHelper.getContactCount() > PAGING_THRESHOLD) {
+            snapshotFile.delete();
+        } else {
+            writeSnapshot();
+        }
+    }
+
+    // 在后台线程调用；写入失败时删除旧快照，下次启动从数据库加载
+    private void writeSnapshot() {
+        try {
+            ContactListSnapshot.write(dbHelper, ContactDatabaseHelper.DATABASE_VERSION, snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "写入联系人快照失败", e);
+            snapshotFile.delete();
+        }
+    }
+
+    // 内存中的联系人由主线程读取，写入数据库使用单独的副本，调用方之后修改原对象也不会影响它
+    private static Contact copyOf(Contact contact) {
+        return new Contact(contact.getId(), contact.getName(), contact.getNickname(),
+                contact.getPhoneNumber(), contact.getGroup(), contact.getPhotoUri());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.contactapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import com.example.contactapp.databinding.ActivityDiagnosticsBinding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 性能诊断页面：开关性能统计，查看冷启动耗时和各热点路径的统计，导出为文本文件
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final String TAG = "DiagnosticsActivity";
+
+    private ActivityDiagnosticsBinding binding;
+    private ActivityResultLauncher<String> createReportFileLauncher;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityDiagnosticsBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        ViewCompat.setOnApplyWindowInsetsListener(binding.getRoot(), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+        setSupportActionBar(binding.toolbar);
+        getSupportActionBar().setTitle("性能诊断");
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+
+        createReportFileLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("text/plain"), uri -> {
+                    if (uri != null) {
+                        exportReport(uri);
+                    }
+                });
+
+        binding.switchMetricsEnabled.setChecked(PerfMetrics.isEnabled());
+        binding.switchMetricsEnabled.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            PerfMetrics.setEnabled(isChecked);
+            SharedPreferences.Editor editor = getSharedPreferences("settings", MODE_PRIVATE).edit();
+            editor.putBoolean(PerfMetrics.PREF_ENABLED, isChecked);
+            editor.apply();
+            showReport();
+        });
+        binding.btnRefreshMetrics.setOnClickListener(v -> showReport());
+        binding.btnResetMetrics.setOnClickListener(v -> {
+            PerfMetrics.reset();
+            showReport();
+        });
+        binding.btnExportMetrics.setOnClickListener(v -> createReportFileLauncher.launch("contact_metrics.txt"));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        binding.textMetricsReport.setText(PerfMetrics.report());
+    }
+
+    // 在后台线程写入文件，与导出联系人一样不占用主线程
+    private void exportReport(Uri uri) {
+        Context appContext = getApplicationContext();
+        AppExecutors.diskIO().execute(() -> {
+            try (OutputStream out = appContext.getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("无法打开文件: " + uri);
+                }
+                out.write(PerfMetrics.report().getBytes(StandardCharsets.UTF_8));
+                AppExecutors.mainThread().execute(() ->
+                        Toast.makeText(appContext, "诊断报告已导出", Toast.LENGTH_SHORT).show());
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "导出诊断报告失败", e);
+                AppExecutors.mainThread().execute(() ->
+                        Toast.makeText(appContext, "导出诊断报告失败: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+}
@@ -4,11 +4,13 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.Gravity;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.TextView;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -26,39 +28,52 @@ import java.util.List;
 import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
-    private static final String TAG = "MainActivity";
-    private ContactDatabaseHelper dbHelper;
+    // 搜索输入的防抖间隔
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private ContactRepository repository;
     private ActivityMainBinding binding;
     private ContactAdapter contactAdapter;
 
-    private List<Contact> contactList = new ArrayList<>();
     private List<String> groupList = new ArrayList<>();
-    private ActivityResultLauncher<Intent> editContactLauncher;
     private ActivityResultLauncher<Intent> settingsLauncher;
 
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch = () -> { };
+
     private boolean isListLayout = true;
+    private boolean usePaging;
     private String currentGroup = "全部";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        // 加载配置信息、联系人数据
-        dbHelper = new ContactDatabaseHelper(this);
-        loadContacts(); // 加载联系人数据
+        // 主题需要在创建视图前确定，其余数据都在首帧之后加载
+        repository = ContactRepository.getInstance(this);
         loadSettings(); // 加载应用设置
 
         // 加载视图
         super.onCreate(savedInstanceState);
+        StartupTimings.mark(StartupTimings.ACTIVITY_CREATED);
         binding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
+        View content = binding.getRoot();
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTimings.mark(StartupTimings.FIRST_FRAME);
+                return true;
+            }
+        });
 
         setSupportActionBar(binding.toolbar);
         getSupportActionBar().setTitle("联系人");
 
-        // 设置 RecyclerView Adapter
+        // 设置 RecyclerView Adapter，联系人加载完成前列表为空
         setAdapter();
+        repository.addListener(contactListener);
+        repository.load(currentGroup); // 在后台加载联系人数据，界面重建时直接使用内存中的列表
 
         // 初始化 ActivityResultLauncher
-        initEditContactLauncher(); // 初始化编辑联系人启动器
         initSettingsLauncher(); // 初始化设置启动器
 
         // 初始化字母索引视图
@@ -68,13 +83,17 @@ public class MainActivity extends AppCompatActivity {
         binding.searchView.setOnQueryTextListener(new androidx.appcompat.widget.SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
-                contactAdapter.setNameFilter(query); // 提交搜索文本时过滤联系人列表
+                searchHandler.removeCallbacks(pendingSearch);
+                contactAdapter.setNameFilter(query); // 提交搜索文本时立即过滤联系人列表
                 return false;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                contactAdapter.setNameFilter(newText); // 当搜索文本改变时过滤联系人列表
+                // 合并连续输入：停止输入一小段时间后才过滤，清空搜索框时立即恢复完整列表
+                searchHandler.removeCallbacks(pendingSearch);
+                pendingSearch = () -> contactAdapter.setNameFilter(newText);
+                searchHandler.postDelayed(pendingSearch, newText.isEmpty() ? 0 : SEARCH_DEBOUNCE_MS);
                 return false;
             }
         });
@@ -98,7 +117,7 @@ public class MainActivity extends AppCompatActivity {
         // 处理菜单项选择事件
         if (item.getItemId() == R.id.action_add) { // 点击添加联系人菜单项
             Intent intentAdd = new Intent(this, ContactDetailActivity.class);
-            editContactLauncher.launch(intentAdd); // 启动添加联系人界面
+            startActivity(intentAdd); // 启动添加联系人界面，保存结果通过联系人仓库通知
             return true;
         } else if (item.getItemId() == R.id.action_filter) { // 点击筛选菜单项
             // 显示筛选对话框
@@ -123,43 +142,45 @@ public class MainActivity extends AppCompatActivity {
         saveSettings(); // 保存应用设置
     }
 
-    private void initEditContactLauncher() {
-        // 初始化编辑联系人的 ActivityResultLauncher
-        editContactLauncher = registerForActivityResult(
-                new ActivityResultContracts.StartActivityForResult(),
-                result -> {
-                    if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                        Contact updatedContact = result.getData().getParcelableExtra("updatedContact");
-                        if (updatedContact != null) {
-                            int index = contactList.indexOf(findContactById(updatedContact.getId()));
-                            if (index != -1) { // 如果联系人存在
-                                if (!updatedContact.getName().isEmpty()) { // 如果更新后的联系人姓名不为空，更新联系人信息
-                                    contactList.set(index, updatedContact); // 更新列表中的联系人信息
-                                    dbHelper.updateContact(updatedContact); // 更新数据库中的联系人信息
-                                    contactAdapter.updateContact(updatedContact); // 更新 RecyclerView 中的联系人显示
-                                } else { // 如果更新后的联系人姓名为空，删除联系人
-                                    contactList.remove(index); // 从列表中删除联系人
-                                    dbHelper.deleteContact(updatedContact.getId()); // 从数据库中删除联系人
-                                    contactAdapter.delContact(updatedContact); // 从 RecyclerView 中删除联系人显示
-                                }
-                            } else {  // 如果联系人不存在，添加新联系人
-                                contactList.add(updatedContact); // 添加新联系人到列表
-                                dbHelper.insertContact(updatedContact); // 插入新联系人到数据库
-                                contactAdapter.insertContact(updatedContact); // 在 RecyclerView 中插入新联系人显示
-                            }
-                            reloadData(); // 重新加载数据
-                        }
-                    }
-                }
-        );
-
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeListener(contactListener);
     }
 
-    private void reloadData() {
-        contactList = dbHelper.getAllContacts(); // 从数据库中获取所有联系人
-        contactAdapter.updateContacts(contactList); // 更新适配器中的联系人数据
-        // 其他操作...
-    }
+    // 联系人仓库的变化事件，单个联系人的增删改只更新对应的行
+    private final ContactRepository.Listener contactListener = new ContactRepository.Listener() {
+        @Override
+        public void onContactsReset(List<Contact> contacts) {
+            if (repository.isPaging() != usePaging) {
+                setAdapter(); // 联系人数量跨过阈值，切换分页模式
+            } else if (usePaging) {
+                contactAdapter.refresh();
+            } else {
+                contactAdapter.updateContacts(contacts);
+            }
+            StartupTimings.mark(StartupTimings.FIRST_CONTACTS_SHOWN);
+            if (repository.isLoaded() && !usePaging) {
+                StartupTimings.mark(StartupTimings.ALL_CONTACTS_SHOWN);
+                reportFullyDrawn();
+            }
+        }
+
+        @Override
+        public void onContactInserted(Contact contact) {
+            contactAdapter.insertContact(contact); // 分页模式下放进所在页，已加载的行保持显示
+        }
+
+        @Override
+        public void onContactUpdated(Contact contact) {
+            contactAdapter.updateContact(contact);
+        }
+
+        @Override
+        public void onContactDeleted(long contactId) {
+            contactAdapter.delContact(contactId);
+        }
+    };
 
     private void initSettingsLauncher() {
         // 初始化设置界面的 ActivityResultLauncher
@@ -168,6 +189,9 @@ public class MainActivity extends AppCompatActivity {
                 result -> {
                     loadSettings(); // 重新加载应用设置
                     setAdapter(); // 更新 RecyclerView 的适配器
+                    if (result.getResultCode() == RESULT_OK) {
+                        repository.reload(); // 设置页导入、合并了联系人，或者重命名、删除了分组
+                    }
                 }
         );
     }
@@ -175,12 +199,20 @@ public class MainActivity extends AppCompatActivity {
     private void setAdapter() {
         // 设置 RecyclerView 的布局管理器和适配器
         binding.recyclerViewContacts.setLayoutManager(new LinearLayoutManager(this));
-        contactAdapter = new ContactAdapter(contactList, isListLayout, contact -> {
-            Intent intent = new Intent(this, ContactDetailActivity.class);
-            intent.putExtra("contact", contact);
-            editContactLauncher.launch(intent); // 启动编辑联系人界面
-        });
+        ContactAdapter.ContactClickListener clickListener = contact -> {
+            // 列表中的联系人可能来自快照，不含昵称和电话，编辑前从数据库读取完整信息
+            repository.loadContact(contact.getId(), fullContact -> {
+                Intent intent = new Intent(this, ContactDetailActivity.class);
+                intent.putExtra("contact", fullContact);
+                startActivity(intent); // 启动编辑联系人界面
+            });
+        };
+        usePaging = repository.isPaging();
+        contactAdapter = usePaging
+                ? new ContactAdapter(ContactDao.getInstance(this), isListLayout, repository::search, clickListener)
+                : new ContactAdapter(repository.getContacts(), isListLayout, repository::search, clickListener);
         binding.recyclerViewContacts.setAdapter(contactAdapter);
+        contactAdapter.setSectionListener(this::updateAlphabetIndexView);
 
         // 加载上次筛选的分组
         contactAdapter.setGroupFilter(currentGroup);
@@ -194,6 +226,7 @@ public class MainActivity extends AppCompatActivity {
         loadTheme(isDarkTheme); // 加载主题设置
 
         isListLayout = sharedPreferences.getBoolean("isListLayout", true); // 加载列表布局设置
+        PerfMetrics.setEnabled(sharedPreferences.getBoolean(PerfMetrics.PREF_ENABLED, false)); // 诊断页面中开启的性能统计
         Set<String> groupSet = sharedPreferences.getStringSet("groupList", Collections.singleton("全部"));
         groupList = new ArrayList<>(groupSet); // 加载分组列表设置
         currentGroup = sharedPreferences.getString("currentGroup", "全部"); // 加载当前分组设置
@@ -223,8 +256,8 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void initAlphabetIndexView() {
-        // 初始化字母索引视图
-        char[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+        // 初始化字母索引视图，包括非字母开头的联系人所在的 '#'
+        char[] alphabet = SectionIndex.SECTIONS.toCharArray();
         for (char letter : alphabet) {
             TextView textView = new TextView(this);
             textView.setText(String.valueOf(letter));
@@ -250,42 +283,17 @@ public class MainActivity extends AppCompatActivity {
             });
             binding.alphabetIndexView.addView(textView); // 添加字母索引视图
         }
+        updateAlphabetIndexView(contactAdapter.getSections());
     }
 
 
-    private int findContactPositionByLetter(char letter) {
-        // 根据字母查找联系人在列表中的位置
-        for (int i = 0; i < contactList.size(); i++) {
-            if (contactList.get(i).getName().substring(0, 1).equalsIgnoreCase(String.valueOf(letter))) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    // 模拟获取联系人数据
-    private void loadContacts() {
-        contactList = dbHelper.getAllContacts();
-        groupList=dbHelper.getAllGroups();
-        for (Contact contact : contactList) {
-            int i = 1;
-            if (!groupList.contains(contact.getGroup())) {
-                contact.setGroup("全部");
-            }
-            Log.d(TAG, "now is" + i);
-        }
-//        contactList.sort((c1, c2) -> c1.getName().compareToIgnoreCase(c2.getName()));
-        Collections.sort(contactList, new PinyinComparator());
-    }
-
-    private Contact findContactById(long id) {
-        // 根据联系人ID查找联系人对象
-        for (Contact contact : contactList) {
-            if (contact.getId() == id) {
-                return contact; // 返回找到的联系人对象
-            }
+    // 侧边栏只显示有联系人的字母
+    private void updateAlphabetIndexView(SectionIndex sections) {
+        for (int i = 0; i < binding.alphabetIndexView.getChildCount(); i++) {
+            View child = binding.alphabetIndexView.getChildAt(i);
+            char letter = SectionIndex.SECTIONS.charAt(i);
+            child.setVisibility(sections.hasSection(letter) ? View.VISIBLE : View.GONE);
         }
-        return null;  // 如果找不到对应ID的联系人，返回null
     }
 
 }
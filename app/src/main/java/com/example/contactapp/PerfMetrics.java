@@ -0,0 +1,115 @@
+package com.example.contactapp;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.Map;
+
+/**
+ * 热点路径的性能统计，结果显示在诊断页面中，也可以导出为文本文件。
+ * 每个统计点同时输出 systrace / Perfetto 中可见的 Trace 区段，名称与统计名称相同。
+ * <p>
+ * 默认关闭，关闭时 {@link #begin} 只读取一次开关就返回，不计时也不输出 Trace 区段。用法：
+ * <pre>
+ * long start = PerfMetrics.begin(PerfMetrics.DB_QUERY);
+ * try {
+ *     ...
+ * } finally {
+ *     PerfMetrics.end(PerfMetrics.DB_QUERY, start);
+ * }
+ * </pre>
+ * begin 和 end 必须在同一个线程中成对调用。
+ */
+public final class PerfMetrics {
+
+    // 数据库读取：列表、分页、搜索、按号码查找等
+    public static final LatencyMetric DB_QUERY = new LatencyMetric("db_query");
+    // 数据库单条写入：新增、修改、删除联系人
+    public static final LatencyMetric DB_WRITE = new LatencyMetric("db_write");
+    // 联系人列表按搜索结果和分组过滤，包括计算字母索引
+    public static final LatencyMetric ADAPTER_FILTER = new LatencyMetric("adapter_filter");
+    // 新增或修改联系人后把它放到有序列表中的位置
+    public static final LatencyMetric ADAPTER_SORT = new LatencyMetric("adapter_sort");
+    public static final LatencyMetric VIEW_BIND = new LatencyMetric("view_bind");
+    public static final LatencyMetric AVATAR_DRAW = new LatencyMetric("avatar_draw");
+    // 照片读取和解码，包括缩略图缓存命中时的解码
+    public static final LatencyMetric PHOTO_DECODE = new LatencyMetric("photo_decode");
+    // 导入、导出整个文件，条目数为行数
+    public static final LatencyMetric IMPORT = new LatencyMetric("import");
+    public static final LatencyMetric EXPORT = new LatencyMetric("export");
+
+    private static final LatencyMetric[] ALL = {
+            DB_QUERY, DB_WRITE, ADAPTER_FILTER, ADAPTER_SORT, VIEW_BIND, AVATAR_DRAW, PHOTO_DECODE, IMPORT, EXPORT};
+
+    // 设置项的键，保存在 "settings" 中
+    public static final String PREF_ENABLED = "isPerfMetricsEnabled";
+
+    private static volatile boolean enabled;
+
+    private PerfMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PerfMetrics.enabled = enabled;
+    }
+
+    /**
+     * 开始计时并进入 Trace 区段
+     *
+     * @return 开始时间，统计关闭时返回 0
+     */
+    public static long begin(LatencyMetric metric) {
+        if (!enabled) {
+            return 0;
+        }
+        Trace.beginSection(metric.getName());
+        return System.nanoTime();
+    }
+
+    public static void end(LatencyMetric metric, long start) {
+        end(metric, start, 0);
+    }
+
+    /**
+     * 结束计时并退出 Trace 区段，begin 返回 0 时什么也不做，中途打开开关也不会出现不成对的区段
+     *
+     * @param itemCount 这次处理的条目数，用于计算吞吐量
+     */
+    public static void end(LatencyMetric metric, long start, long itemCount) {
+        if (start == 0) {
+            return;
+        }
+        metric.record(System.nanoTime() - start, itemCount);
+        Trace.endSection();
+    }
+
+    public static void reset() {
+        for (LatencyMetric metric : ALL) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * 生成诊断报告：设备信息、冷启动各阶段耗时和各统计点的数据
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("设备: ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(", Android ").append(Build.VERSION.RELEASE)
+                .append(" (API ").append(Build.VERSION.SDK_INT).append(")\n");
+        out.append("统计: ").append(enabled ? "已开启" : "已关闭").append("\n\n");
+        out.append("冷启动 (距进程启动)\n");
+        for (Map.Entry<String, Long> milestone : StartupTimings.getMilestones().entrySet()) {
+            out.append("  ").append(milestone.getKey()).append(": ").append(milestone.getValue()).append(" ms\n");
+        }
+        out.append('\n');
+        for (LatencyMetric metric : ALL) {
+            metric.snapshot().appendTo(out);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.contactapp;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * 联系人照片加载器。
+ * 照片在后台线程读取，按目标视图的大小降采样解码；解码结果缓存在内存（按字节数限制的 LRU）
+ * 和应用私有目录下的缩略图文件中，再次显示时不必重新解码原图。
+ * 同一个 ImageView 发起新请求或被回收时，之前尚未完成的请求会被取消。
+ * load 和 cancel 只能在主线程调用。
+ */
+public final class PhotoLoader {
+
+    private static final String TAG = "PhotoLoader";
+    // 缩略图缓存目录，位于应用缓存目录下，系统空间不足时可以被清理
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    // 缩略图缓存的总大小上限，超出时按最近使用时间删除较旧的文件
+    private static final long MAX_DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final int THUMBNAIL_QUALITY = 90;
+    // 视图尚未确定大小时使用的目标边长
+    private static final int DEFAULT_TARGET_SIZE = 256;
+
+    private static PhotoLoader instance;
+
+    private final ContentResolver contentResolver;
+    private final File diskCacheDir;
+    private final LruCache<String, Bitmap> memoryCache;
+    // 缩略图缓存的当前大小，首次写入时统计，-1 表示尚未统计
+    private long diskCacheBytes = -1;
+
+    public static synchronized PhotoLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new PhotoLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private PhotoLoader(Context context) {
+        contentResolver = context.getContentResolver();
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        // 内存缓存最多使用可用堆内存的八分之一
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * 在 ImageView 中显示照片，加载完成前显示占位图
+     *
+     * @param view        显示照片的视图
+     * @param photoUri    照片URI
+     * @param placeholder 加载期间和加载失败时显示的图片
+     */
+    public void load(ImageView view, String photoUri, Drawable placeholder) {
+        cancel(view);
+        int targetSize = targetSize(view);
+        String key = photoUri + '@' + targetSize;
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(placeholder);
+        Request request = new Request(view, key, Uri.parse(photoUri), targetSize);
+        view.setTag(R.id.photo_loader_request, request);
+        request.future = AppExecutors.photoIO().submit(request);
+    }
+
+    /**
+     * 取消视图上尚未完成的请求，视图被回收或改为显示其他内容时调用
+     */
+    public void cancel(ImageView view) {
+        Request request = (Request) view.getTag(R.id.photo_loader_request);
+        if (request != null) {
+            request.cancelled = true;
+            request.future.cancel(false);
+            view.setTag(R.id.photo_loader_request, null);
+        }
+    }
+
+    /**
+     * 清空内存缓存，应用进入后台时调用
+     */
+    public void clearMemoryCache() {
+        memoryCache.evictAll();
+    }
+
+    // 固定大小的视图直接使用布局参数，保证同一位置每次使用相同的缓存键
+    private static int targetSize(ImageView view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int size = params != null ? Math.max(params.width, params.height) : 0;
+        if (size <= 0) {
+            size = Math.max(view.getWidth(), view.getHeight());
+        }
+        return size > 0 ? size : DEFAULT_TARGET_SIZE;
+    }
+
+    // 后台线程中执行：先查缩略图缓存，没有时解码原图并写入缓存
+    private Bitmap loadBitmap(Request request) throws IOException {
+        File file = new File(diskCacheDir, UUID.nameUUIDFromBytes(request.key.getBytes(StandardCharsets.UTF_8)) + ".thumb");
+        if (file.isFile()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap != null) {
+                file.setLastModified(System.currentTimeMillis()); // 记录最近使用时间，清理时优先保留
+                return bitmap;
+            }
+        }
+        if (request.cancelled) {
+            return null;
+        }
+        Bitmap bitmap = decodeSampledBitmap(request.uri, request.targetSize);
+        if (bitmap != null) {
+            writeThumbnail(file, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeSampledBitmap(Uri uri, int targetSize) throws IOException {
+        // 先只读取尺寸，计算采样率
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = openPhoto(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetSize);
+        Bitmap sampled;
+        try (InputStream in = openPhoto(uri)) {
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (sampled == null) {
+            return null;
+        }
+        // 采样率只能是 2 的幂，再缩放到较短边等于目标边长
+        float scale = (float) targetSize / Math.min(sampled.getWidth(), sampled.getHeight());
+        if (scale >= 1f) {
+            return sampled;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled, Math.max(1, Math.round(sampled.getWidth() * scale)),
+                Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    private InputStream openPhoto(Uri uri) throws FileNotFoundException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        return in;
+    }
+
+    // 较短边不小于目标边长的最大采样率
+    static int calculateInSampleSize(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        int shortSide = Math.min(width, height);
+        while (shortSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // 先写入临时文件再改名，读取时不会看到写了一半的缩略图
+    private synchronized void writeThumbnail(File file, Bitmap bitmap) {
+        if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs()) {
+            return;
+        }
+        File temp = new File(diskCacheDir, file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            bitmap.compress(bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG,
+                    THUMBNAIL_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "写入缩略图失败", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        trimDiskCache(file.length());
+    }
+
+    // 超出上限时按最近使用时间从旧到新删除，直到降到上限的四分之三
+    private void trimDiskCache(long addedBytes) {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        if (diskCacheBytes < 0) {
+            diskCacheBytes = 0;
+            for (File cached : files) {
+                diskCacheBytes += cached.length();
+            }
+        } else {
+            diskCacheBytes += addedBytes;
+        }
+        if (diskCacheBytes <= MAX_DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File cached : files) {
+            if (diskCacheBytes <= MAX_DISK_CACHE_BYTES * 3 / 4) {
+                break;
+            }
+            long length = cached.length();
+            if (cached.delete()) {
+                diskCacheBytes -= length;
+            }
+        }
+    }
+
+    private final class Request implements Runnable {
+        // 只在主线程访问
+        final ImageView view;
+        final String key;
+        final Uri uri;
+        final int targetSize;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        Request(ImageView view, String key, Uri uri, int targetSize) {
+            this.view = view;
+            this.key = key;
+            this.uri = uri;
+            this.targetSize = targetSize;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Bitmap bitmap = null;
+            long start = PerfMetrics.begin(PerfMetrics.PHOTO_DECODE);
+            try {
+                bitmap = loadBitmap(this);
+            } catch (IOException | SecurityException e) {
+                Log.w(TAG, "无法加载照片: " + uri, e);
+            } finally {
+                PerfMetrics.end(PerfMetrics.PHOTO_DECODE, start);
+            }
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+            Bitmap result = bitmap;
+            AppExecutors.mainThread().execute(() -> {
+                if (view.getTag(R.id.photo_loader_request) != this) {
+                    return; // 请求已取消，或视图已经用于显示其他联系人
+                }
+                view.setTag(R.id.photo_loader_request, null);
+                if (result != null) {
+                    view.setImageBitmap(result);
+                }
+            });
+        }
+    }
+}
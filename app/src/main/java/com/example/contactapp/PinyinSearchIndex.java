@@ -0,0 +1,439 @@
+package com.example.contactapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 拼音搜索索引：把联系人姓名的拼音首字母和全拼映射到联系人ID，按前缀查找。
+ * 例如“张三”可以通过 "zs"、"zhangs"、"zhangsan"、"san" 找到。
+ * <p>
+ * 索引主体是按键排序的紧凑数组，所有键拼接在一个 char[] 中，前缀查找是一次二分查找加一段连续扫描。
+ * 增删改先记录在增量区，积累到一定数量后线性合并进主体。每次修改都生成新的不可变快照，搜索线程无需加锁。
+ * <p>
+ * 重建在后台读取数据期间，增量区可能已被合并进旧的主体。因此重建期间的增删改另外按顺序记入修改日志，
+ * 新的主体装入后重放读取数据之后的那些修改，不会丢失。
+ */
+public class PinyinSearchIndex {
+
+    // 增量区（删除标记 + 新增的键）超过该数量时合并进主体
+    private static final int MAX_PENDING_CHANGES = 256;
+    // 每个姓名最多从前几个音节开始生成键，避免超长姓名产生过多的键
+    private static final int MAX_KEY_STARTS = 8;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // 以下字段由 this 锁保护
+    // 重建期间的增删改，按发生顺序；没有进行中的重建时不记录
+    private final List<Edit> edits = new ArrayList<>();
+    // edits 中第一条修改的序号，序号从 0 开始对所有修改连续编号
+    private long firstEditSequence;
+    private int rebuildsInProgress;
+    // 当前主体开始读取数据时的修改序号，开始得更早的重建不能再覆盖它
+    private long baseEditSequence;
+
+    /**
+     * 开始一次重建，必须在读取联系人数据之前调用，之后的增删改会在重建完成时重放。
+     * 返回的 Builder 必须交给 {@link #rebuild(Builder)}。
+     */
+    public synchronized Builder newBuilder() {
+        rebuildsInProgress++;
+        return new Builder(firstEditSequence + edits.size());
+    }
+
+    /**
+     * 用逐个加入的全部联系人姓名重建索引，可以在后台线程调用，不需要先读出完整的联系人列表。
+     * 装入新的主体后重放 Builder 创建之后发生的增删改。
+     */
+    public void rebuild(Builder builder) {
+        List<Key> keys = builder.keys;
+        Collections.sort(keys);
+        Snapshot base = Snapshot.pack(keys);
+        synchronized (this) {
+            rebuildsInProgress--;
+            if (builder.startEditSequence >= baseEditSequence) {
+                baseEditSequence = builder.startEditSequence;
+                snapshot = base;
+                for (int i = (int) (builder.startEditSequence - firstEditSequence); i < edits.size(); i++) {
+                    edits.get(i).applyTo(this);
+                }
+            }
+            if (rebuildsInProgress == 0) {
+                firstEditSequence += edits.size();
+                edits.clear();
+            }
+        }
+    }
+
+    /**
+     * 新增联系人，或在姓名变化后更新联系人的键
+     */
+    public synchronized void putContact(Contact contact) {
+        record(new Edit(contact.getId(), contact.getName(), false));
+        put(contact.getId(), contact.getName());
+    }
+
+    public synchronized void removeContact(long id) {
+        record(new Edit(id, null, true));
+        remove(id);
+    }
+
+    /**
+     * 按拼音前缀查找联系人
+     *
+     * @param query 用户输入，只包含字母、数字和空白时才会按拼音查找
+     * @return 匹配的联系人ID，无重复、按ID升序
+     */
+    public long[] search(String query) {
+        String prefix = normalizeQuery(query);
+        if (prefix.isEmpty()) {
+            return new long[0];
+        }
+        Snapshot current = snapshot;
+        long[] result = new long[16];
+        int count = 0;
+        for (int i = current.lowerBound(prefix); i < current.size() && current.startsWith(i, prefix); i++) {
+            long id = current.ids[i];
+            if (Arrays.binarySearch(current.removedIds, id) < 0) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        }
+        for (Key key : current.pending) {
+            if (key.text.startsWith(prefix)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = key.id;
+            }
+        }
+        return distinct(result, count);
+    }
+
+    private void record(Edit edit) {
+        if (rebuildsInProgress > 0) {
+            edits.add(edit);
+        } else {
+            firstEditSequence++;
+        }
+    }
+
+    private void put(long id, String name) {
+        List<Key> pending = withoutId(snapshot.pending, id);
+        addKeys(pending, id, name);
+        apply(withId(snapshot.removedIds, id), pending);
+    }
+
+    private void remove(long id) {
+        apply(withId(snapshot.removedIds, id), withoutId(snapshot.pending, id));
+    }
+
+    private void apply(long[] removedIds, List<Key> pending) {
+        Snapshot current = snapshot;
+        if (removedIds.length + pending.size() > MAX_PENDING_CHANGES) {
+            snapshot = current.merge(removedIds, pending);
+        } else {
+            snapshot = new Snapshot(current.chars, current.offsets, current.ids, removedIds, pending);
+        }
+    }
+
+    // 查询只接受字母、数字，空白和拼音分隔符 ' 会被忽略
+    private static String normalizeQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char c = Character.toLowerCase(query.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                prefix.append(c);
+            } else if (!Character.isWhitespace(c) && c != '\'') {
+                return "";
+            }
+        }
+        return prefix.toString();
+    }
+
+    private static void addKeys(List<Key> keys, long id, String name) {
+        List<String> syllables = toSyllables(name);
+        int starts = Math.min(syllables.size(), MAX_KEY_STARTS);
+        for (int start = 0; start < starts; start++) {
+            StringBuilder full = new StringBuilder();
+            StringBuilder initials = new StringBuilder();
+            for (int i = start; i < syllables.size(); i++) {
+                full.append(syllables.get(i));
+                initials.append(syllables.get(i).charAt(0));
+            }
+            keys.add(new Key(full.toString(), id));
+            if (syllables.size() - start > 1) {
+                keys.add(new Key(initials.toString(), id));
+            }
+        }
+    }
+
+    /**
+     * 把姓名拆成音节：汉字取第一个读音的无声调拼音，连续的英文字母和数字作为一个音节
+     */
+    static List<String> toSyllables(String name) {
+        List<String> syllables = new ArrayList<>();
+        if (name == null) {
+            return syllables;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (word.length() > 0) {
+                syllables.add(word.toString());
+                word.setLength(0);
+            }
+            if (c >= 128) {
+                String pinyin = PinyinTable.firstSyllable(c);
+                if (pinyin != null) {
+                    syllables.add(pinyin);
+                }
+            }
+        }
+        if (word.length() > 0) {
+            syllables.add(word.toString());
+        }
+        return syllables;
+    }
+
+    private static long[] withId(long[] sortedIds, long id) {
+        int position = Arrays.binarySearch(sortedIds, id);
+        if (position >= 0) {
+            return sortedIds;
+        }
+        position = -position - 1;
+        long[] result = new long[sortedIds.length + 1];
+        System.arraycopy(sortedIds, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(sortedIds, position, result, position + 1, sortedIds.length - position);
+        return result;
+    }
+
+    private static List<Key> withoutId(List<Key> keys, long id) {
+        List<Key> result = new ArrayList<>(keys.size() + 4);
+        for (Key key : keys) {
+            if (key.id != id) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    private static long[] distinct(long[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * 重建索引时逐个收集联系人的键，由 {@link #newBuilder()} 创建
+     */
+    public static final class Builder {
+        private final List<Key> keys = new ArrayList<>();
+        // 创建时的修改序号，之后的修改在重建完成时重放
+        private final long startEditSequence;
+
+        private Builder(long startEditSequence) {
+            this.startEditSequence = startEditSequence;
+        }
+
+        public void add(long id, String name) {
+            addKeys(keys, id, name);
+        }
+
+        public void addAll(List<Contact> contacts) {
+            for (Contact contact : contacts) {
+                addKeys(keys, contact.getId(), contact.getName());
+            }
+        }
+    }
+
+    /**
+     * 修改日志中的一条增删改
+     */
+    private static final class Edit {
+        final long id;
+        final String name;
+        final boolean removal;
+
+        Edit(long id, String name, boolean removal) {
+            this.id = id;
+            this.name = name;
+            this.removal = removal;
+        }
+
+        void applyTo(PinyinSearchIndex index) {
+            if (removal) {
+                index.remove(id);
+            } else {
+                index.put(id, name);
+            }
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final String text;
+        final long id;
+
+        Key(String text, long id) {
+            this.text = text;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = text.compareTo(other.text);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * 不可变的索引快照。主体中第 i 个键是 chars[offsets[i], offsets[i + 1])，对应联系人 ids[i]。
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new char[0], new int[]{0}, new long[0],
+                new long[0], Collections.emptyList());
+
+        final char[] chars;
+        final int[] offsets;
+        final long[] ids;
+        // 主体中已失效的联系人ID（已删除或已更新），升序
+        final long[] removedIds;
+        // 尚未合并进主体的键
+        final List<Key> pending;
+
+        Snapshot(char[] chars, int[] offsets, long[] ids, long[] removedIds, List<Key> pending) {
+            this.chars = chars;
+            this.offsets = offsets;
+            this.ids = ids;
+            this.removedIds = removedIds;
+            this.pending = Collections.unmodifiableList(pending);
+        }
+
+        static Snapshot pack(List<Key> sortedKeys) {
+            int totalChars = 0;
+            for (Key key : sortedKeys) {
+                totalChars += key.text.length();
+            }
+            char[] chars = new char[totalChars];
+            int[] offsets = new int[sortedKeys.size() + 1];
+            long[] ids = new long[sortedKeys.size()];
+            int position = 0;
+            for (int i = 0; i < sortedKeys.size(); i++) {
+                Key key = sortedKeys.get(i);
+                key.text.getChars(0, key.text.length(), chars, position);
+                offsets[i] = position;
+                ids[i] = key.id;
+                position += key.text.length();
+            }
+            offsets[sortedKeys.size()] = position;
+            return new Snapshot(chars, offsets, ids, new long[0], Collections.emptyList());
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        // 主体中第 i 个键与 text 比较
+        int compareKey(int i, String text) {
+            int start = offsets[i];
+            int length = offsets[i + 1] - start;
+            int common = Math.min(length, text.length());
+            for (int k = 0; k < common; k++) {
+                int diff = chars[start + k] - text.charAt(k);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length - text.length();
+        }
+
+        boolean startsWith(int i, String prefix) {
+            int start = offsets[i];
+            if (offsets[i + 1] - start < prefix.length()) {
+                return false;
+            }
+            for (int k = 0; k < prefix.length(); k++) {
+                if (chars[start + k] != prefix.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 第一个不小于 text 的键的位置
+        int lowerBound(String text) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareKey(mid, text) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 把增量区线性合并进主体：跳过失效的联系人，与排好序的新增键归并
+         */
+        Snapshot merge(long[] removed, List<Key> added) {
+            List<Key> sortedAdded = new ArrayList<>(added);
+            Collections.sort(sortedAdded);
+            int addedChars = 0;
+            for (Key key : sortedAdded) {
+                addedChars += key.text.length();
+            }
+            char[] newChars = new char[chars.length + addedChars];
+            int[] newOffsets = new int[size() + sortedAdded.size() + 1];
+            long[] newIds = new long[size() + sortedAdded.size()];
+            int count = 0;
+            int position = 0;
+            int j = 0;
+            for (int i = 0; i < size(); i++) {
+                if (Arrays.binarySearch(removed, ids[i]) >= 0) {
+                    continue;
+                }
+                while (j < sortedAdded.size() && compareKey(i, sortedAdded.get(j).text) > 0) {
+                    Key key = sortedAdded.get(j++);
+                    key.text.getChars(0, key.text.length(), newChars, position);
+                    newOffsets[count] = position;
+                    newIds[count++] = key.id;
+                    position += key.text.length();
+                }
+                int length = offsets[i + 1] - offsets[i];
+                System.arraycopy(chars, offsets[i], newChars, position, length);
+                newOffsets[count] = position;
+                newIds[count++] = ids[i];
+                position += length;
+            }
+            while (j < sortedAdded.size()) {
+                Key key = sortedAdded.get(j++);
+                key.text.getChars(0, key.text.length(), newChars, position);
+                newOffsets[count] = position;
+                newIds[count++] = key.id;
+                position += key.text.length();
+            }
+            newOffsets[count] = position;
+            return new Snapshot(Arrays.copyOf(newChars, position), Arrays.copyOf(newOffsets, count + 1),
+                    Arrays.copyOf(newIds, count), new long[0], Collections.emptyList());
+        }
+    }
+}
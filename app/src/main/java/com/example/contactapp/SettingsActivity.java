@@ -7,6 +7,7 @@ import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.os.Environment;
 import android.os.Handler;
 import android.provider.Settings;
@@ -37,7 +38,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -54,13 +54,13 @@ public class SettingsActivity extends AppCompatActivity {
     private SharedPreferences sharedPreferences;
     private ActivityResultLauncher<String[]> pickCsvFileLauncher;
     private ActivityResultLauncher<String> createCsvFileLauncher;
-    private ContactDatabaseHelper dbHelper;
-    private List<Contact> contactList = new ArrayList<>();
+    private ContactDao dao;
+    private CancellationSignal importCancellationSignal; // 正在进行的导入任务，为 null 表示没有导入
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         // 加载配置信息
         loadSettings();
-        dbHelper = new ContactDatabaseHelper(this);
+        dao = ContactDao.getInstance(this);
         binding = ActivitySettingsBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
         ViewCompat.setOnApplyWindowInsetsListener(binding.getRoot(), (v, insets) -> {
@@ -78,18 +78,22 @@ public class SettingsActivity extends AppCompatActivity {
         // 初始化导入导出功能的 ActivityResultLauncher
         pickCsvFileLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
             if (uri != null) {
-                ContactImporter.importContactsFromUri(this, uri);
+                startImport(uri);
             }
         });
 
         createCsvFileLauncher = registerForActivityResult(new ActivityResultContracts.CreateDocument(), uri -> {
             if (uri != null) {
-                ContactExporter.exportContactsToUri(this, uri);
+                startExport(uri);
             }
         });
 
         // 设置导入按钮点击事件
         binding.btnImportContacts.setOnClickListener(view -> {
+            if (importCancellationSignal != null) {
+                importCancellationSignal.cancel(); // 导入过程中再次点击取消导入
+                return;
+            }
             if (checkAndRequestPermissions()) {
                 pickCsvFileLauncher.launch(new String[]{"*/*"}); // 允许所有文件类型选择
             } else {
@@ -106,6 +110,10 @@ public class SettingsActivity extends AppCompatActivity {
             }
         });
 
+        binding.btnMergeDuplicates.setOnClickListener(view -> findDuplicates());
+
+        binding.btnDiagnostics.setOnClickListener(view -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+
         // 更改group
         groupAdapter = new GroupAdapter(groupList, true, group, (group, action) -> {
             switch (action) {
@@ -145,6 +153,152 @@ public class SettingsActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
     }
 
+    private void startImport(Uri uri) {
+        binding.btnImportContacts.setText("正在导入，点击取消");
+        // 导入完成前离开设置页也要重新加载：导入在写线程中执行，重新加载排在它之后
+        setResult(RESULT_OK);
+        importCancellationSignal = ContactImporter.importContactsFromUri(this, uri, new ContactImporter.ImportListener() {
+            @Override
+            public void onProgress(long rowsRead) {
+                binding.btnImportContacts.setText("已读取 " + rowsRead + " 条，点击取消");
+            }
+
+            @Override
+            public void onComplete(ContactDatabaseHelper.BulkInsertResult result) {
+                finishImport();
+                Toast.makeText(getApplicationContext(), "联系人导入成功! 共 " + result.getRowsWritten() + " 条", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onCancelled(ContactDatabaseHelper.BulkInsertResult result) {
+                finishImport();
+                Toast.makeText(getApplicationContext(), "导入已取消，已导入 " + result.getRowsWritten() + " 条", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishImport();
+                Toast.makeText(getApplicationContext(), "导入联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void finishImport() {
+        importCancellationSignal = null;
+        binding.btnImportContacts.setText("导入联系人");
+    }
+
+    private void startExport(Uri uri) {
+        binding.btnExportContacts.setEnabled(false);
+        binding.btnExportContacts.setText("正在导出");
+        ContactExporter.exportContactsToUri(this, uri, new ContactExporter.ExportListener() {
+            @Override
+            public void onProgress(long rowsWritten, long totalRows) {
+                binding.btnExportContacts.setText("已导出 " + rowsWritten + "/" + totalRows);
+            }
+
+            @Override
+            public void onComplete(long rowsWritten) {
+                finishExport();
+                Toast.makeText(getApplicationContext(), "联系人导出成功! 共 " + rowsWritten + " 条", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishExport();
+                Toast.makeText(getApplicationContext(), "导出联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void finishExport() {
+        binding.btnExportContacts.setEnabled(true);
+        binding.btnExportContacts.setText("导出联系人");
+    }
+
+    private void findDuplicates() {
+        binding.btnMergeDuplicates.setEnabled(false);
+        binding.btnMergeDuplicates.setText("正在查找重复联系人");
+        dao.findDuplicateContacts(new ContactDao.Callback<List<DuplicateFinder.Group>>() {
+            @Override
+            public void onResult(List<DuplicateFinder.Group> groups) {
+                finishMerge();
+                if (groups.isEmpty()) {
+                    Toast.makeText(getApplicationContext(), "没有发现重复联系人", Toast.LENGTH_SHORT).show();
+                } else {
+                    showMergeDialog(groups);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishMerge();
+                Toast.makeText(getApplicationContext(), "查找重复联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    // 列出所有重复组，默认全部选中，用户取消勾选的组不合并
+    private void showMergeDialog(List<DuplicateFinder.Group> groups) {
+        String[] items = new String[groups.size()];
+        boolean[] checked = new boolean[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            DuplicateFinder.Group group = groups.get(i);
+            StringBuilder item = new StringBuilder();
+            for (int j = 0; j < group.size(); j++) {
+                if (j > 0) {
+                    item.append(" / ");
+                }
+                item.append(group.getName(j));
+            }
+            items[i] = item.toString();
+            checked[i] = true;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("发现 " + groups.size() + " 组重复联系人")
+                .setMultiChoiceItems(items, checked, (dialogInterface, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("合并", (dialogInterface, i) -> {
+                    List<long[]> accepted = new ArrayList<>();
+                    for (int j = 0; j < groups.size(); j++) {
+                        if (checked[j]) {
+                            accepted.add(groups.get(j).getIds());
+                        }
+                    }
+                    if (!accepted.isEmpty()) {
+                        mergeDuplicates(accepted);
+                    }
+                })
+                .setNegativeButton("取消", (dialogInterface, i) -> dialogInterface.dismiss())
+                .create()
+                .show();
+    }
+
+    private void mergeDuplicates(List<long[]> groups) {
+        binding.btnMergeDuplicates.setEnabled(false);
+        binding.btnMergeDuplicates.setText("正在合并");
+        setResult(RESULT_OK); // 联系人列表需要重新加载，合并同样在写线程中执行
+        dao.mergeDuplicateContacts(groups, new ContactDao.Callback<ContactDatabaseHelper.MergeResult>() {
+            @Override
+            public void onResult(ContactDatabaseHelper.MergeResult result) {
+                Log.d("setting", "合并重复联系人: " + result);
+                finishMerge();
+                Toast.makeText(getApplicationContext(), "已合并 " + result.getGroupsMerged() + " 组，删除 " +
+                        result.getContactsRemoved() + " 个重复联系人", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishMerge();
+                Toast.makeText(getApplicationContext(), "合并联系人失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void finishMerge() {
+        binding.btnMergeDuplicates.setEnabled(true);
+        binding.btnMergeDuplicates.setText("查找重复联系人");
+    }
+
     private boolean checkAndRequestPermissions() {
         boolean hasPermission;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
@@ -215,7 +369,6 @@ public class SettingsActivity extends AppCompatActivity {
         Set<String> groupSet = new HashSet<>(groupList);
         editor.putStringSet("groupList", Collections.unmodifiableSet(groupSet));
         editor.apply();
-        setResult(RESULT_OK);
     }
 
     private void showAddGroupDialog() {
@@ -266,20 +419,14 @@ public class SettingsActivity extends AppCompatActivity {
             int position = groupList.indexOf(group);
             if (!newGroupName.isEmpty() && !groupList.contains(newGroupName) && position != -1) {
                 groupList.set(position, newGroupName);
-
-                contactList = dbHelper.getAllContacts();
-                for(Contact contact:contactList){
-//                    Log.d("setting", String.valueOf(" "+contact.getGroup()==group));
-                    if(Objects.equals(contact.getGroup(), group)){
-                        Log.d("setting"," "+contact.getGroup()+" "+group);
-                        contact.setGroup(newGroupName);
-                        dbHelper.updateContact(contact);
-
-                    }
-                }
                 groupAdapter.notifyItemChanged(position);
                 saveGroups();
 
+                // 在写线程中用一条语句更新该分组下的所有联系人
+                dao.renameGroup(group, newGroupName, rows ->
+                        Log.d("setting", "重命名分组 " + group + " -> " + newGroupName + ", " + rows + " 个联系人"));
+                setResult(RESULT_OK); // 联系人列表需要重新加载，重新加载排在这次更新之后
+
             } else {
                 Toast.makeText(this, "不允许的分组名", Toast.LENGTH_SHORT).show();
             }
@@ -293,16 +440,10 @@ public class SettingsActivity extends AppCompatActivity {
             groupList.remove(position);
             groupAdapter.notifyItemRemoved(position);
             saveGroups();
-            contactList = dbHelper.getAllContacts();
-            for(Contact contact:contactList){
-//                    Log.d("setting", String.valueOf(" "+contact.getGroup()==group));
-                if(Objects.equals(contact.getGroup(), group)){
-//                    Log.d("setting"," "+contact.getGroup()+" "+group);
-                    contact.setGroup("全部");
-                    dbHelper.updateContact(contact);
-
-                }
-            }
+            // 在写线程中把该分组下的联系人归入默认分组
+            dao.deleteGroup(group, rows ->
+                    Log.d("setting", "删除分组 " + group + ", " + rows + " 个联系人移入默认分组"));
+            setResult(RESULT_OK); // 联系人列表需要重新加载
             Toast.makeText(this, "删除成功", Toast.LENGTH_SHORT).show();
         }
     }
@@ -0,0 +1,48 @@
+package com.example.contactapp;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 冷启动各阶段的时间点，从进程启动开始计时，用于跟踪启动耗时的变化。
+ * 每个阶段只记录第一次到达的时间，同时输出到日志。
+ */
+public final class StartupTimings {
+
+    private static final String TAG = "StartupTimings";
+
+    public static final String ACTIVITY_CREATED = "activity_created";
+    // 首帧绘制，此时界面已经可见
+    public static final String FIRST_FRAME = "first_frame";
+    // 第一屏联系人已显示
+    public static final String FIRST_CONTACTS_SHOWN = "first_contacts_shown";
+    // 完整列表已显示
+    public static final String ALL_CONTACTS_SHOWN = "all_contacts_shown";
+    // 拼音搜索索引构建完成
+    public static final String SEARCH_INDEX_READY = "search_index_ready";
+
+    private static final Map<String, Long> MILESTONES = new LinkedHashMap<>();
+
+    private StartupTimings() {
+    }
+
+    public static synchronized void mark(String milestone) {
+        if (MILESTONES.containsKey(milestone)) {
+            return;
+        }
+        long elapsedMillis = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        MILESTONES.put(milestone, elapsedMillis);
+        Log.i(TAG, milestone + ": " + elapsedMillis + " ms");
+    }
+
+    /**
+     * 已到达的阶段及其距进程启动的毫秒数，按到达顺序排列
+     */
+    public static synchronized Map<String, Long> getMilestones() {
+        return new LinkedHashMap<>(MILESTONES);
+    }
+}
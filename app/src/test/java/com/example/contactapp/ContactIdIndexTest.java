@@ -0,0 +1,62 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 联系人ID索引的本地单元测试
+ */
+public class ContactIdIndexTest {
+
+    @Test
+    public void randomPutsAndRemoves_matchHashMap() {
+        ContactIdIndex index = new ContactIdIndex();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long id = 1 + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                index.put(id, i);
+                expected.put(id, i);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (long id = 1; id <= 2000; id++) {
+            Integer position = expected.get(id);
+            assertEquals(position == null ? -1 : position, index.get(id));
+        }
+    }
+
+    @Test
+    public void reindex_followsInsertedAndRemovedContacts() {
+        List<Contact> contacts = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            contacts.add(new Contact(id * 10, "c" + id, null, null, null, null));
+        }
+        ContactIdIndex index = new ContactIdIndex();
+        index.rebuild(contacts);
+
+        contacts.add(1, new Contact(99, "new", null, null, null, null));
+        index.reindex(contacts, 1, contacts.size());
+        assertEquals(1, index.get(99));
+        assertEquals(2, index.get(20));
+        assertEquals(5, index.get(50));
+
+        contacts.remove(0);
+        index.remove(10);
+        index.reindex(contacts, 0, contacts.size());
+        assertEquals(-1, index.get(10));
+        assertEquals(0, index.get(99));
+        assertEquals(4, index.get(50));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.contactapp;
+
+/**
+ * 基准测试用的联系人，字段与应用中的 Contact 一致，同样缓存排序键
+ */
+final class BenchmarkContact implements ContactEntry {
+
+    private final long id;
+    private final String name;
+    private final String nickname;
+    private final String phoneNumber;
+    private final String group;
+    private final String photoUri;
+    private String sortKey;
+
+    BenchmarkContact(long id, String name, String nickname, String phoneNumber, String group, String photoUri) {
+        this.id = id;
+        this.name = name;
+        this.nickname = nickname;
+        this.phoneNumber = phoneNumber;
+        this.group = group;
+        this.photoUri = photoUri;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    String getNickname() {
+        return nickname;
+    }
+
+    String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    String getPhotoUri() {
+        return photoUri;
+    }
+
+    @Override
+    public String getSortKey() {
+        if (sortKey == null) {
+            sortKey = PinyinComparator.toPinyin(name);
+        }
+        return sortKey;
+    }
+}
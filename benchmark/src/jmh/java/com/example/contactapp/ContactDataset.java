@@ -0,0 +1,96 @@
+package com.example.contactapp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 生成基准测试用的联系人数据：中文姓名和英文姓名混合，夹杂少量数字和符号开头的姓名。
+ * 使用固定的随机种子，每次运行的数据相同，结果可以互相比较。
+ */
+final class ContactDataset {
+
+    private static final long SEED = 20240601L;
+
+    private static final String SURNAMES = "王李张刘陈杨黄赵吴周徐孙马朱胡郭何高林罗郑梁谢宋唐许韩冯邓曹彭曾萧田董潘袁蔡蒋余于杜叶程魏苏吕丁任沈姚卢";
+    private static final String GIVEN_NAMES = "伟芳娜秀英敏静丽强磊军洋勇艳杰娟涛明超秀兰霞平刚桂英华玉萍红娥玲芬燕彬鹏浩宇晨欣怡子涵雨轩";
+    private static final String[] LATIN_FIRST_NAMES = {
+            "Alice", "bob", "Carol", "David", "emma", "Frank", "Grace", "Henry", "Ivy", "Jack",
+            "Kate", "Leo", "Mia", "Noah", "Olivia", "Peter", "Quinn", "Rose", "Sam", "Tom"};
+    private static final String[] LATIN_LAST_NAMES = {
+            "Smith", "Johnson", "Brown", "Lee", "Garcia", "Miller", "Davis", "Wilson", "Moore", "Clark"};
+    private static final String[] GROUPS = {"全部", "家人", "同事", "朋友", "同学"};
+
+    private ContactDataset() {
+    }
+
+    /**
+     * 生成联系人，约 60% 中文姓名、35% 英文姓名、5% 数字或符号开头的姓名
+     */
+    static List<BenchmarkContact> generate(int size) {
+        Random random = new Random(SEED + size);
+        List<BenchmarkContact> contacts = new ArrayList<>(size);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            name.setLength(0);
+            int kind = random.nextInt(100);
+            if (kind < 60) {
+                name.append(SURNAMES.charAt(random.nextInt(SURNAMES.length())));
+                int givenLength = 1 + random.nextInt(2);
+                for (int j = 0; j < givenLength; j++) {
+                    name.append(GIVEN_NAMES.charAt(random.nextInt(GIVEN_NAMES.length())));
+                }
+            } else if (kind < 95) {
+                name.append(LATIN_FIRST_NAMES[random.nextInt(LATIN_FIRST_NAMES.length)])
+                        .append(' ')
+                        .append(LATIN_LAST_NAMES[random.nextInt(LATIN_LAST_NAMES.length)]);
+            } else {
+                name.append(random.nextInt(1000)).append(random.nextBoolean() ? "号店" : "-Service");
+            }
+            String phoneNumber = "1" + (30 + random.nextInt(70)) + String.format("%08d", random.nextInt(100_000_000));
+            // 少量字段包含逗号、引号或换行，CSV 读写需要加引号
+            String nickname = random.nextInt(20) == 0 ? "备注,\"常用\"\n第二行" : "nick" + i;
+            String photoUri = random.nextInt(4) == 0 ? "content://media/external/images/media/" + i : null;
+            contacts.add(new BenchmarkContact(i + 1, name.toString(), nickname, phoneNumber,
+                    GROUPS[random.nextInt(GROUPS.length)], photoUri));
+        }
+        return contacts;
+    }
+
+    /**
+     * 从联系人中按固定间隔取出约 1/10 的ID，模拟一次搜索返回的结果
+     */
+    static long[] sampleIds(List<BenchmarkContact> contacts) {
+        long[] ids = new long[(contacts.size() + 9) / 10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = contacts.get(i * 10).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * 按导出格式写成 CSV 文本
+     */
+    static String toCsv(List<BenchmarkContact> contacts) {
+        StringWriter out = new StringWriter(contacts.size() * 64);
+        try {
+            writeCsv(new CsvWriter(out), contacts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    // 与 ContactExporter 一样通过 ContactCsv 写出每一行
+    static void writeCsv(CsvWriter writer, List<BenchmarkContact> contacts) throws IOException {
+        ContactCsv.writeHeader(writer);
+        for (BenchmarkContact contact : contacts) {
+            ContactCsv.writeRow(writer, contact.getId(), contact.getName(), contact.getNickname(),
+                    contact.getPhoneNumber(), contact.getGroup(), contact.getPhotoUri());
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.contactapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV 导入解析和导出格式化，与 ContactImporter、ContactExporter 一样通过 ContactCsv 处理每一行，不包含数据库和文件读写
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CsvBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<BenchmarkContact> contacts;
+    private String csv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contacts = ContactDataset.generate(size);
+        csv = ContactDataset.toCsv(contacts);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            reader.readRecord(); // 跳过头部
+            BenchmarkContact contact;
+            while ((contact = ContactCsv.readRow(reader, (name, nickname, phoneNumber, group, photoUri) ->
+                    new BenchmarkContact(0, name, nickname, phoneNumber, group, photoUri))) != null) {
+                blackhole.consume(contact);
+            }
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole) throws IOException {
+        ContactDataset.writeCsv(new CsvWriter(new BlackholeWriter(blackhole)), contacts);
+    }
+
+    /**
+     * 丢弃写出内容的 Writer，只测量格式化本身
+     */
+    private static final class BlackholeWriter extends Writer {
+        private final Blackhole blackhole;
+
+        BlackholeWriter(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int c) {
+            blackhole.consume(c);
+        }
+
+        @Override
+        public void write(String str) {
+            blackhole.consume(str);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            blackhole.consume(buffer);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
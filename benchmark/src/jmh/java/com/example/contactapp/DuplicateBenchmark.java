@@ -0,0 +1,53 @@
+package com.example.contactapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重复联系人查找，数据为生成的联系人再加上其中 1/10 重新导入一遍的副本
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DuplicateBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<BenchmarkContact> contacts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<BenchmarkContact> generated = ContactDataset.generate(size);
+        contacts = new ArrayList<>(generated);
+        long nextId = size + 1;
+        for (int i = 0; i < generated.size(); i += 10) {
+            BenchmarkContact contact = generated.get(i);
+            contacts.add(new BenchmarkContact(nextId++, contact.getName(), contact.getNickname(),
+                    contact.getPhoneNumber(), contact.getGroup(), contact.getPhotoUri()));
+        }
+        for (BenchmarkContact contact : contacts) {
+            contact.getSortKey(); // 排序键在数据库中已经存好，不计入查找时间
+        }
+    }
+
+    @Benchmark
+    public List<DuplicateFinder.Group> findDuplicates() {
+        DuplicateFinder finder = new DuplicateFinder(contacts.size());
+        for (BenchmarkContact contact : contacts) {
+            finder.add(contact.getId(), contact.getName(), contact.getSortKey(), contact.getPhoneNumber());
+        }
+        return finder.find();
+    }
+}
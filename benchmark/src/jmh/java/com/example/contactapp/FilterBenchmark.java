@@ -0,0 +1,51 @@
+package com.example.contactapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 联系人列表按搜索结果和分组筛选，与 ContactAdapter 的过滤逻辑相同
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<BenchmarkContact> contacts;
+    private long[] matchedIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contacts = ContactDataset.generate(size);
+        contacts.sort(new PinyinComparator());
+        matchedIds = ContactDataset.sampleIds(contacts);
+    }
+
+    @Benchmark
+    public List<BenchmarkContact> filterByGroup() {
+        return ContactFilters.filter(contacts, null, "同事");
+    }
+
+    @Benchmark
+    public List<BenchmarkContact> filterBySearchResults() {
+        return ContactFilters.filter(contacts, matchedIds, ContactFilters.ALL_GROUPS);
+    }
+
+    @Benchmark
+    public List<BenchmarkContact> filterBySearchResultsAndGroup() {
+        return ContactFilters.filter(contacts, matchedIds, "同事");
+    }
+}
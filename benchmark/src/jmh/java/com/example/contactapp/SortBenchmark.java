@@ -0,0 +1,64 @@
+package com.example.contactapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拼音排序：计算排序键，以及按已缓存的排序键排序
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    private static final PinyinComparator COMPARATOR = new PinyinComparator();
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<BenchmarkContact> contacts;
+    private List<BenchmarkContact> shuffled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contacts = ContactDataset.generate(size);
+        for (BenchmarkContact contact : contacts) {
+            contact.getSortKey(); // 预先缓存排序键，排序测试只比较字符串
+        }
+        shuffled = new ArrayList<>(contacts);
+        Collections.shuffle(shuffled, new Random(size));
+    }
+
+    @Benchmark
+    public void computeSortKeys(Blackhole blackhole) {
+        for (BenchmarkContact contact : contacts) {
+            blackhole.consume(PinyinComparator.toPinyin(contact.getName()));
+        }
+    }
+
+    @Benchmark
+    public List<BenchmarkContact> sortWithCachedKeys() {
+        List<BenchmarkContact> list = new ArrayList<>(shuffled);
+        list.sort(COMPARATOR);
+        return list;
+    }
+
+    @Benchmark
+    public SectionIndex buildSectionIndex() {
+        return SectionIndex.of(contacts);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.contactapp;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 构建时运行，用 pinyin4j 生成 {@link PinyinTable} 读取的拼音表文件。
+ * 参数：输出文件路径
+ */
+public final class PinyinTableGenerator {
+
+    private static final int MAGIC = 0x50595442; // 与 PinyinTable.MAGIC 相同
+    private static final int FORMAT_VERSION = 1;
+    private static final int FIRST_CODE_POINT = 0x4E00;
+    private static final int LAST_CODE_POINT = 0x9FFF;
+
+    private PinyinTableGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException, BadHanyuPinyinOutputFormatCombination {
+        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+        format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        format.setVCharType(HanyuPinyinVCharType.WITH_V);
+
+        int count = LAST_CODE_POINT - FIRST_CODE_POINT + 1;
+        String[] firstReadings = new String[count];
+        // 音节按字母顺序编号，生成的文件与运行环境无关
+        Map<String, Integer> syllableIndexes = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            String[] pinyin = PinyinHelper.toHanyuPinyinStringArray((char) (FIRST_CODE_POINT + i), format);
+            if (pinyin != null && pinyin.length > 0 && !pinyin[0].isEmpty()) {
+                firstReadings[i] = pinyin[0];
+                syllableIndexes.put(pinyin[0], 0);
+            }
+        }
+        List<String> syllables = new ArrayList<>(syllableIndexes.keySet());
+        for (int i = 0; i < syllables.size(); i++) {
+            syllableIndexes.put(syllables.get(i), i);
+        }
+
+        File output = new File(args[0]);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(FIRST_CODE_POINT);
+            out.writeInt(count);
+            out.writeInt(syllables.size());
+            for (String syllable : syllables) {
+                byte[] chars = syllable.getBytes(StandardCharsets.US_ASCII);
+                out.writeByte(chars.length);
+                out.write(chars);
+            }
+            for (String reading : firstReadings) {
+                out.writeShort(reading == null ? -1 : syllableIndexes.get(reading));
+            }
+        }
+        System.out.println("拼音表: " + syllables.size() + " 个音节, " + count + " 个码位 -> " + output);
+    }
+}
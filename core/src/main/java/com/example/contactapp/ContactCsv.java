@@ -0,0 +1,76 @@
+package com.example.contactapp;
+
+import java.io.IOException;
+
+/**
+ * 导入导出使用的 CSV 文件格式：ID,姓名,别名,电话,分组,图片。
+ * 应用的导入导出和基准测试都通过这里读写每一行，格式只在这一处定义。
+ */
+public final class ContactCsv {
+
+    // 一条联系人记录至少包含的列数
+    public static final int COLUMN_COUNT = 6;
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_NAME = 1;
+    public static final int COLUMN_NICKNAME = 2;
+    public static final int COLUMN_PHONE_NUMBER = 3;
+    public static final int COLUMN_GROUP = 4;
+    public static final int COLUMN_PHOTO_URI = 5;
+
+    private static final char BOM = '\uFEFF';
+
+    private ContactCsv() {
+    }
+
+    /**
+     * 写入 BOM 和文件头部，BOM 让表格软件按 UTF-8 打开中文内容
+     */
+    public static void writeHeader(CsvWriter writer) throws IOException {
+        writer.writeField(BOM + "ID");
+        writer.writeRecord("姓名", "别名", "电话", "分组", "图片");
+    }
+
+    /**
+     * 写出一条联系人记录，列顺序与文件头部一致
+     */
+    public static void writeRow(CsvWriter writer, long id, String name, String nickname, String phoneNumber,
+                                String group, String photoUri) throws IOException {
+        writer.writeField(String.valueOf(id));
+        writer.writeField(name);
+        writer.writeField(nickname);
+        writer.writeField(phoneNumber);
+        writer.writeField(group);
+        writer.writeField(photoUri);
+        writer.endRecord();
+    }
+
+    /**
+     * 读取下一条联系人记录，跳过列数不足的行。文件中的 ID 不使用，导入时由数据库重新生成。
+     *
+     * @param factory 用解析出的字段创建调用方自己的联系人对象
+     * @return 联系人，已读到文件末尾时返回 null
+     */
+    public static <T> T readRow(CsvReader reader, RowFactory<T> factory) throws IOException {
+        String[] record;
+        while ((record = reader.readRecord()) != null) {
+            if (record.length >= COLUMN_COUNT) {
+                return factory.create(record[COLUMN_NAME], record[COLUMN_NICKNAME], record[COLUMN_PHONE_NUMBER],
+                        record[COLUMN_GROUP], photoUriOf(record));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 由一条记录的字段创建联系人
+     */
+    public interface RowFactory<T> {
+        T create(String name, String nickname, String phoneNumber, String group, String photoUri);
+    }
+
+    // 记录中的照片URI，旧版本导出的文件用 "null" 表示没有照片
+    private static String photoUriOf(String[] record) {
+        String photoUri = record[COLUMN_PHOTO_URI];
+        return photoUri.isEmpty() || "null".equals(photoUri) ? null : photoUri;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.contactapp;
+
+/**
+ * 排序、字母索引和筛选用到的联系人字段。
+ * 这些逻辑不依赖 Android，放在纯 Java 模块中，可以直接在 JVM 上测试和做基准测试。
+ */
+public interface ContactEntry {
+
+    long getId();
+
+    String getName();
+
+    String getGroup();
+
+    /**
+     * 拼音排序键，见 {@link PinyinComparator#toPinyin(String)}
+     */
+    String getSortKey();
+}
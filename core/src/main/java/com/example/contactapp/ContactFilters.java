@@ -0,0 +1,48 @@
+package com.example.contactapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 联系人列表的搜索和分组筛选
+ */
+public final class ContactFilters {
+
+    // 表示不按分组筛选的分组名
+    public static final String ALL_GROUPS = "全部";
+
+    private ContactFilters() {
+    }
+
+    /**
+     * 按搜索结果和分组筛选联系人；source 已按排序键有序，结果保持原有顺序，无需再次排序。
+     * 既不按搜索也不按分组筛选时直接返回 source，不逐个复制
+     *
+     * @param matchedIds 搜索匹配的联系人ID，为 null 时不按搜索筛选
+     * @param group      分组，为 null 或 {@link #ALL_GROUPS} 时不按分组筛选
+     */
+    public static <T extends ContactEntry> List<T> filter(List<T> source, long[] matchedIds, String group) {
+        boolean allGroups = group == null || ALL_GROUPS.equals(group);
+        if (matchedIds == null && allGroups) {
+            return source;
+        }
+        Set<Long> matchedIdSet = null;
+        if (matchedIds != null) {
+            matchedIdSet = new HashSet<>(matchedIds.length * 2);
+            for (long id : matchedIds) {
+                matchedIdSet.add(id);
+            }
+        }
+        List<T> filteredResults = new ArrayList<>();
+        for (T contact : source) {
+            boolean matchesName = (matchedIdSet == null || matchedIdSet.contains(contact.getId()));
+            boolean matchesGroup = (allGroups || group.equals(contact.getGroup()));
+            if (matchesName && matchesGroup) {
+                filteredResults.add(contact);
+            }
+        }
+        return filteredResults;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.contactapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式 CSV 解析器，按 RFC 4180 处理引号、转义的双引号、字段内换行以及 CRLF 行尾。
+ * 每次只解析一条记录，内存占用与文件大小无关；文件开头的 BOM 会被跳过。
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char BOM = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean started;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 记录中的字段，已到文件末尾时返回 null
+     */
+    public String[] readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        fields.clear();
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean atFieldStart = true;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    break; // 引号未闭合，按文件末尾结束当前记录
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"'); // 两个连续的双引号表示一个双引号字符
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                atFieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                break;
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '"' && atFieldStart) {
+                inQuotes = true;
+            } else {
+                field.append((char) c);
+            }
+            atFieldStart = false;
+            c = read();
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    // 缓冲区读完时从底层 Reader 继续读取，返回是否还有数据
+    private boolean fill() throws IOException {
+        while (position >= limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit == -1) {
+                limit = 0;
+                return false;
+            }
+            if (!started && limit > 0) {
+                started = true;
+                if (buffer[0] == BOM) {
+                    position = 1;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.contactapp;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 流式 CSV 写入器，按 RFC 4180 对包含逗号、双引号或换行的字段加引号，记录以 CRLF 结尾。
+ * 可以逐字段写入，写出一行不需要额外分配数组。
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private boolean atRecordStart = true;
+
+    public CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 写入一个字段，null 写为空字段
+     */
+    public void writeField(String value) throws IOException {
+        if (!atRecordStart) {
+            writer.write(',');
+        }
+        atRecordStart = false;
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!needsQuoting(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"'); // 双引号转义为两个双引号
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * 结束当前记录
+     */
+    public void endRecord() throws IOException {
+        writer.write("\r\n");
+        atRecordStart = true;
+    }
+
+    /**
+     * 写入一条完整的记录
+     */
+    public void writeRecord(String... fields) throws IOException {
+        for (String field : fields) {
+            writeField(field);
+        }
+        endRecord();
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.contactapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查找重复的联系人，例如同一个 CSV 文件被导入了多次。
+ * 联系人按两种键分桶：去掉空白的拼音姓名键，以及姓名键加上规范化号码的尾号（见 {@link PhoneNumbers}）。
+ * 落在同一个桶中的联系人用并查集合并为一组，每个联系人只查两次哈希表，总耗时与联系人数量成线性关系，不做两两比较。
+ * <p>
+ * 姓名相同时号码还必须不冲突（其中一方没有号码，或号码相同），同名的不同人不会被合并。
+ * 只有号码相同不算重复：家人、同事可能共用一个座机或总机号码，合并会删掉其中一个人。
+ * 姓名桶记住的是桶中第一个有号码的联系人的号码，之后号码不同的同名联系人仍可以通过姓名加号码的桶彼此合并。
+ */
+public final class DuplicateFinder {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] ids;
+    private String[] names;
+    // 并查集，元素为加入顺序的下标
+    private int[] parents;
+    // 以该联系人为首的姓名桶已知的号码键，只对桶首有意义
+    private String[] nameBucketPhones;
+    private int size;
+    private final Map<String, Integer> nameBuckets;
+    private final Map<String, Integer> namePhoneBuckets;
+
+    /**
+     * @param expectedSize 预计的联系人数量，只影响初始容量
+     */
+    public DuplicateFinder(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        ids = new long[capacity];
+        names = new String[capacity];
+        parents = new int[capacity];
+        nameBucketPhones = new String[capacity];
+        nameBuckets = new HashMap<>(capacity * 2);
+        namePhoneBuckets = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 加入一个联系人，按ID升序加入时结果无需再排序
+     *
+     * @param sortKey     拼音排序键，见 {@link PinyinComparator#toPinyin(String)}
+     * @param phoneNumber 电话号码，原始写法或规范化后的数字都可以
+     */
+    public void add(long id, String name, String sortKey, String phoneNumber) {
+        if (size == ids.length) {
+            grow();
+        }
+        int index = size++;
+        ids[index] = id;
+        names[index] = name;
+        parents[index] = index;
+
+        String phoneKey = PhoneNumbers.suffixKeyOf(phoneNumber, PhoneNumbers.DEFAULT_MATCH_DIGITS);
+        String nameKey = nameKeyOf(sortKey);
+        if (nameKey == null) {
+            return;
+        }
+        Integer first = nameBuckets.putIfAbsent(nameKey, index);
+        if (first == null) {
+            nameBucketPhones[index] = phoneKey;
+        } else {
+            String knownPhone = nameBucketPhones[first];
+            if (phoneKey == null || knownPhone == null || knownPhone.equals(phoneKey)) {
+                union(first, index);
+                if (knownPhone == null) {
+                    nameBucketPhones[first] = phoneKey;
+                }
+            }
+        }
+        if (phoneKey != null) {
+            // 姓名键不含空白，用空格分隔不会与其他组合混淆
+            Integer samePhone = namePhoneBuckets.putIfAbsent(nameKey + ' ' + phoneKey, index);
+            if (samePhone != null) {
+                union(samePhone, index);
+            }
+        }
+    }
+
+    /**
+     * 找出所有包含两个及以上联系人的组
+     *
+     * @return 重复组，组内按ID升序，各组按保留的联系人ID升序
+     */
+    public List<Group> find() {
+        // 第一遍统计每个根下的成员数，第二遍只为成员数大于 1 的根分配数组
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            counts[root(i)]++;
+        }
+        int[] groupOfRoot = new int[size];
+        int[] filled = new int[size];
+        List<Group> groups = new ArrayList<>();
+        Arrays.fill(groupOfRoot, -1);
+        for (int i = 0; i < size; i++) {
+            int root = root(i);
+            if (counts[root] < 2) {
+                continue;
+            }
+            if (groupOfRoot[root] == -1) {
+                groupOfRoot[root] = groups.size();
+                groups.add(new Group(new long[counts[root]], new String[counts[root]]));
+            }
+            int groupIndex = groupOfRoot[root];
+            Group group = groups.get(groupIndex);
+            group.ids[filled[groupIndex]] = ids[i];
+            group.names[filled[groupIndex]] = names[i];
+            filled[groupIndex]++;
+        }
+        for (Group group : groups) {
+            group.sortById();
+        }
+        groups.sort((a, b) -> Long.compare(a.getKeeperId(), b.getKeeperId()));
+        return groups;
+    }
+
+    /**
+     * 加入的联系人数量
+     */
+    public int size() {
+        return size;
+    }
+
+    // 姓名键：拼音排序键去掉空白，"Alice Smith" 与 "alice  smith" 相同；空姓名不参与比较
+    static String nameKeyOf(String sortKey) {
+        if (sortKey == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(sortKey.length());
+        for (int i = 0; i < sortKey.length(); i++) {
+            char c = sortKey.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                key.append(c);
+            }
+        }
+        return key.length() == 0 ? null : key.toString();
+    }
+
+    // 路径减半：查找时顺便把经过的节点指向祖父节点，树保持很浅
+    private int root(int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        int rootA = root(a);
+        int rootB = root(b);
+        if (rootA != rootB) {
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        nameBucketPhones = Arrays.copyOf(nameBucketPhones, capacity);
+    }
+
+    /**
+     * 一组重复的联系人。合并时保留ID最小（最早加入）的联系人，其余的合并到它上面后删除。
+     */
+    public static final class Group {
+        private final long[] ids;
+        private final String[] names;
+
+        Group(long[] ids, String[] names) {
+            this.ids = ids;
+            this.names = names;
+        }
+
+        public long getKeeperId() {
+            return ids[0];
+        }
+
+        public long[] getIds() {
+            return ids.clone();
+        }
+
+        public String getName(int index) {
+            return names[index];
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        // 按ID升序加入时组内已经有序，插入排序只需一遍检查；组内成员通常也很少
+        private void sortById() {
+            for (int i = 1; i < ids.length; i++) {
+                long id = ids[i];
+                String name = names[i];
+                int j = i - 1;
+                while (j >= 0 && ids[j] > id) {
+                    ids[j + 1] = ids[j];
+                    names[j + 1] = names[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+                names[j + 1] = name;
+            }
+        }
+    }
+}
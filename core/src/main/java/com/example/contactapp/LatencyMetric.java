@@ -0,0 +1,211 @@
+package com.example.contactapp;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个热点路径的耗时统计：调用次数、处理的条目数、总耗时、最大耗时，
+ * 按 2 的幂划分的耗时直方图，以及最近 {@link #RECENT_SIZE} 次耗时的环形缓冲区（用于计算百分位数）。
+ * <p>
+ * 记录时只有几次原子加法和一次数组写入，不加锁，任意线程都可以同时记录。
+ * 读取快照时不会阻塞记录，快照中的各项数据可能相差正在进行的几次记录，用于诊断足够准确。
+ */
+public final class LatencyMetric {
+
+    // 环形缓冲区保留的最近记录数，必须是 2 的幂
+    static final int RECENT_SIZE = 256;
+    // 直方图分桶：第 0 桶小于 1 微秒，第 k 桶为 [2^(k-1), 2^k) 微秒，最后一桶包含所有更长的耗时
+    static final int BUCKET_COUNT = 24;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLongArray recent = new AtomicLongArray(RECENT_SIZE);
+    // 下一次写入环形缓冲区的序号，对 RECENT_SIZE 取模得到位置
+    private final AtomicLong recentCursor = new AtomicLong();
+
+    public LatencyMetric(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒）
+     * @param itemCount 这次处理的条目数，例如导入的行数，没有意义时为 0
+     */
+    public void record(long nanos, long itemCount) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        count.increment();
+        if (itemCount != 0) {
+            items.add(itemCount);
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets.incrementAndGet(bucketOf(nanos));
+        recent.set((int) (recentCursor.getAndIncrement() & (RECENT_SIZE - 1)), nanos);
+    }
+
+    /**
+     * 清空统计，与记录同时进行时可能保留其中的个别数据
+     */
+    public void reset() {
+        count.reset();
+        items.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        recentCursor.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = buckets.get(i);
+        }
+        int recentCount = (int) Math.min(recentCursor.get(), RECENT_SIZE);
+        long[] recentNanos = new long[recentCount];
+        for (int i = 0; i < recentCount; i++) {
+            recentNanos[i] = recent.get(i);
+        }
+        Arrays.sort(recentNanos);
+        return new Snapshot(name, count.sum(), items.sum(), totalNanos.sum(), maxNanos.get(), bucketCounts, recentNanos);
+    }
+
+    static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 某一时刻的统计数据
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long count;
+        private final long items;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+        // 最近的耗时，已按从小到大排序
+        private final long[] recentNanos;
+
+        Snapshot(String name, long count, long items, long totalNanos, long maxNanos, long[] buckets, long[] recentNanos) {
+            this.name = name;
+            this.count = count;
+            this.items = items;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+            this.recentNanos = recentNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * 最近记录中的百分位耗时，没有记录时返回 0
+         *
+         * @param percentile 0 到 100 之间
+         */
+        public long getPercentileNanos(double percentile) {
+            if (recentNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * recentNanos.length) - 1;
+            return recentNanos[Math.max(0, Math.min(index, recentNanos.length - 1))];
+        }
+
+        // 每秒处理的条目数，只对记录了条目数的统计有意义
+        public double getItemsPerSecond() {
+            return totalNanos == 0 ? 0 : items * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos;
+        }
+
+        public long getBucketCount(int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * 输出为一段文本：汇总一行，非空的直方图桶一行
+         */
+        public void appendTo(StringBuilder out) {
+            out.append(name).append(": ").append(count).append(" 次");
+            if (count > 0) {
+                out.append(", 平均 ").append(formatNanos(getMeanNanos()))
+                        .append(", p50 ").append(formatNanos(getPercentileNanos(50)))
+                        .append(", p90 ").append(formatNanos(getPercentileNanos(90)))
+                        .append(", p99 ").append(formatNanos(getPercentileNanos(99)))
+                        .append(", 最大 ").append(formatNanos(maxNanos));
+            }
+            if (items > 0) {
+                out.append(", ").append(items).append(" 条, ").append(Math.round(getItemsPerSecond())).append(" 条/秒");
+            }
+            out.append('\n');
+            if (count == 0) {
+                return;
+            }
+            out.append("  直方图:");
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (buckets[i] != 0) {
+                    out.append(' ').append(bucketLabel(i)).append('=').append(buckets[i]);
+                }
+            }
+            out.append('\n');
+        }
+
+        // 桶的上界，最后一桶没有上界
+        private static String bucketLabel(int bucket) {
+            if (bucket == BUCKET_COUNT - 1) {
+                return ">=" + formatNanos(TimeUnit.MICROSECONDS.toNanos(1L << (bucket - 1)));
+            }
+            return "<" + formatNanos(TimeUnit.MICROSECONDS.toNanos(1L << bucket));
+        }
+
+        static String formatNanos(long nanos) {
+            if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+                return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+            }
+            if (nanos < TimeUnit.SECONDS.toNanos(1)) {
+                return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+            }
+            return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.contactapp;
+
+/**
+ * 电话号码的规范化，用于来电显示式的按尾号匹配。
+ * 号码只保留数字，去掉空格、横线、括号和加号等写法差异；国家码和长途区号保留，按尾号匹配时自然会被忽略。
+ * <p>
+ * 数据库中另存一份倒序的数字，“尾号等于某串数字”就变成“倒序数字以某串数字开头”，可以直接用索引做范围查找。
+ */
+public final class PhoneNumbers {
+
+    // 来电匹配默认比较的尾号位数，覆盖大陆手机号的 11 位，+86 等国家码不参与比较
+    public static final int DEFAULT_MATCH_DIGITS = 11;
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * 号码中的数字，全角数字也按对应的半角数字保留
+     *
+     * @return 纯数字字符串，号码为 null 或不含数字时返回 null
+     */
+    public static String digitsOf(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            int digit = Character.digit(phoneNumber.charAt(i), 10);
+            if (digit >= 0) {
+                digits.append((char) ('0' + digit));
+            }
+        }
+        return digits.length() == 0 ? null : digits.toString();
+    }
+
+    /**
+     * 倒序的号码数字，作为尾号索引的键
+     *
+     * @return 号码为 null 或不含数字时返回 null
+     */
+    public static String reversedDigitsOf(String phoneNumber) {
+        String digits = digitsOf(phoneNumber);
+        return digits == null ? null : new StringBuilder(digits).reverse().toString();
+    }
+
+    /**
+     * 按尾号查找时使用的键：号码最后 matchDigits 位数字的倒序，号码不足 matchDigits 位时使用全部数字。
+     * 倒序数字以该键开头的号码，尾号就与查找的号码相同。
+     *
+     * @return 号码不含数字时返回 null
+     */
+    public static String suffixKeyOf(String phoneNumber, int matchDigits) {
+        if (matchDigits <= 0) {
+            throw new IllegalArgumentException("matchDigits 必须大于 0: " + matchDigits);
+        }
+        String reversed = reversedDigitsOf(phoneNumber);
+        return reversed == null || reversed.length() <= matchDigits ? reversed : reversed.substring(0, matchDigits);
+    }
+
+    /**
+     * 以 key 开头的字符串的上界（不含）：数字之后的第一个字符是 ':'，
+     * 范围 [key, key + ':') 恰好包含所有以 key 开头的纯数字字符串
+     */
+    public static String prefixUpperBound(String key) {
+        return key + (char) ('9' + 1);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.contactapp;
+
+import java.util.Comparator;
+import java.util.Locale;
+public class PinyinComparator implements Comparator<ContactEntry> {
+    @Override
+    public int compare(ContactEntry c1, ContactEntry c2) {
+        // 使用联系人缓存的排序键，避免每次比较都重新转换拼音
+        int result = c1.getSortKey().compareTo(c2.getSortKey());
+        // 排序键相同时按 ID 排序，与数据库的 ORDER BY sort_key, id 保持一致
+        return result != 0 ? result : Long.compare(c1.getId(), c2.getId());
+    }
+
+    // 不以字母开头的排序键加上该前缀，排在所有字母之后，字母索引中的 '#' 分区因此是连续的
+    public static final char OTHER_SECTION_PREFIX = '{';
+
+    /**
+     * 计算排序键：汉字转为无声调拼音，统一小写，大小写不同的英文姓名排在一起
+     */
+    public static String toPinyin(String chinese) {
+        if (chinese == null) {
+            return String.valueOf(OTHER_SECTION_PREFIX);
+        }
+        StringBuilder pinyin = new StringBuilder(chinese.length() * 4);
+        for (int i = 0; i < chinese.length(); i++) {
+            char c = chinese.charAt(i);
+            String syllable = PinyinTable.firstSyllable(c);
+            if (syllable != null) {
+                pinyin.append(syllable);
+            } else {
+                pinyin.append(c);
+            }
+        }
+        String sortKey = pinyin.toString().toLowerCase(Locale.ROOT);
+        char first = sortKey.isEmpty() ? 0 : sortKey.charAt(0);
+        return first >= 'a' && first <= 'z' ? sortKey : OTHER_SECTION_PREFIX + sortKey;
+    }
+}
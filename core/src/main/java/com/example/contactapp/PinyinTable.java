@@ -0,0 +1,125 @@
+package com.example.contactapp;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 常用汉字（CJK 统一汉字基本区 U+4E00-U+9FFF）的拼音表，构建时由 PinyinTableGenerator 从 pinyin4j 生成。
+ * 每个汉字只记录第一个读音的无声调小写拼音（ü 写作 v），与 pinyin4j 返回的第一个读音相同，多音字的排序结果不变。
+ * <p>
+ * 表中所有音节只有几百个，每个汉字存一个 short 音节编号；首次使用时从资源文件整体读入，
+ * 之后的查找只是一次数组访问，返回共享的音节字符串，不分配内存。
+ * 表外的汉字（扩展区等）才回退到 pinyin4j。
+ *
+ * <pre>
+ * 文件格式: magic, 格式版本, 首个码位, 码位数, 音节数 (int),
+ *          音节 (每个: 长度 byte + ASCII 字符), 音节编号 (short[码位数], 没有读音为 -1)
+ * </pre>
+ */
+public final class PinyinTable {
+
+    static final String RESOURCE_NAME = "pinyin.dat";
+    static final int MAGIC = 0x50595442; // "PYTB"
+    static final int FORMAT_VERSION = 1;
+
+    private static final HanyuPinyinOutputFormat FALLBACK_FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FALLBACK_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FALLBACK_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FALLBACK_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private final int firstCodePoint;
+    private final int count;
+    private final String[] syllables;
+    private final ShortBuffer syllableIndexes;
+
+    private PinyinTable(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("不是可识别的拼音表");
+        }
+        firstCodePoint = buffer.getInt();
+        count = buffer.getInt();
+        syllables = new String[buffer.getInt()];
+        byte[] chars = new byte[16];
+        for (int i = 0; i < syllables.length; i++) {
+            int length = buffer.get();
+            buffer.get(chars, 0, length);
+            syllables[i] = new String(chars, 0, length, StandardCharsets.US_ASCII);
+        }
+        syllableIndexes = buffer.slice().asShortBuffer();
+        if (syllableIndexes.remaining() != count) {
+            throw new IllegalArgumentException("拼音表长度不正确");
+        }
+    }
+
+    // 首次使用时才加载
+    private static final class Holder {
+        static final PinyinTable TABLE = load();
+    }
+
+    /**
+     * 汉字第一个读音的无声调拼音
+     *
+     * @return 共享的音节字符串，不是汉字或没有读音时返回 null
+     */
+    public static String firstSyllable(char c) {
+        PinyinTable table = Holder.TABLE;
+        if (table != null) {
+            int offset = c - table.firstCodePoint;
+            if (offset >= 0 && offset < table.count) {
+                short index = table.syllableIndexes.get(offset);
+                return index < 0 ? null : table.syllables[index];
+            }
+        }
+        return c >= 128 && Character.isIdeographic(c) ? fallbackSyllable(c) : null;
+    }
+
+    /**
+     * 汉字拼音的首字母，不是汉字或没有读音时返回 0
+     */
+    public static char initialOf(char c) {
+        String syllable = firstSyllable(c);
+        return syllable == null ? 0 : syllable.charAt(0);
+    }
+
+    // 表外的汉字很少见，由 pinyin4j 查找
+    private static String fallbackSyllable(char c) {
+        try {
+            String[] pinyin = PinyinHelper.toHanyuPinyinStringArray(c, FALLBACK_FORMAT);
+            return pinyin != null && pinyin.length > 0 && !pinyin[0].isEmpty() ? pinyin[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+
+    // 资源文件缺失或损坏时返回 null，所有汉字都改用 pinyin4j
+    private static PinyinTable load() {
+        try (InputStream in = PinyinTable.class.getResourceAsStream(RESOURCE_NAME)) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(48 * 1024);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new PinyinTable(ByteBuffer.wrap(out.toByteArray()));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.contactapp;
+
+/**
+ * 全文搜索的索引文本和查询表达式。
+ * <p>
+ * unicode61 分词器不拆分汉字，“李小明”整个是一个词，只能从第一个字开始按前缀搜到。
+ * 因此姓名和昵称另存一份每个汉字单独成词的文本，含汉字的搜索词也同样拆开、按短语查询，
+ * 从中间的字开始也能搜到，例如“小明”能搜到“李小明”。
+ */
+public final class SearchText {
+
+    private SearchText() {
+    }
+
+    /**
+     * 在汉字与相邻字符之间加空格，让每个汉字单独成词，其他字符保持不变
+     *
+     * @return text 为 null 时返回 null
+     */
+    public static String splitHanzi(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(text.length() * 2);
+        boolean previousHanzi = false;
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            boolean hanzi = Character.isIdeographic(c);
+            if ((hanzi || previousHanzi) && result.length() > 0 && result.charAt(result.length() - 1) != ' ') {
+                result.append(' ');
+            }
+            result.appendCodePoint(c);
+            previousHanzi = hanzi;
+            i += Character.charCount(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 把用户输入转换为全文搜索表达式：按空白和标点拆分成词，每个词加引号并追加前缀通配符，词之间为“且”的关系。
+     * 含汉字的词拆成逐字的短语，只会在拆开的姓名和昵称中连续匹配。
+     */
+    public static String toPrefixMatch(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String term : query.split("[\\s\\p{Punct}]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(splitHanzi(term)).append("*\"");
+        }
+        return match.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.contactapp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 字母索引：每个分区在按排序键排好序的列表中的起始位置。
+ * 分区按排序键的首字母划分为 A-Z，其他字符开头的归入 '#'，排在最后。
+ * 与有序列表在同一次遍历中计算，之后查找某个字母的位置只需一次数组访问。
+ */
+public final class SectionIndex {
+
+    // 非字母开头的联系人所在的分区
+    public static final char OTHER_SECTION = '#';
+    // 侧边栏依次显示的分区
+    public static final String SECTIONS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + OTHER_SECTION;
+
+    public static final SectionIndex EMPTY = new Builder().build();
+
+    private final int[] firstPositions;
+
+    private SectionIndex(int[] firstPositions) {
+        this.firstPositions = firstPositions;
+    }
+
+    /**
+     * 由已按排序键排好序的联系人列表计算
+     */
+    public static SectionIndex of(List<? extends ContactEntry> sortedContacts) {
+        Builder builder = new Builder();
+        for (ContactEntry contact : sortedContacts) {
+            builder.add(contact.getSortKey());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 排序键所属的分区
+     */
+    public static char sectionOf(String sortKey) {
+        char first = sortKey == null || sortKey.isEmpty() ? 0 : sortKey.charAt(0);
+        return first >= 'a' && first <= 'z' ? (char) (first - 'a' + 'A') : OTHER_SECTION;
+    }
+
+    /**
+     * 分区第一个联系人的位置，分区中没有联系人时返回 -1
+     */
+    public int getPosition(char section) {
+        int index = SECTIONS.indexOf(section);
+        return index < 0 ? -1 : firstPositions[index];
+    }
+
+    public boolean hasSection(char section) {
+        return getPosition(section) != -1;
+    }
+
+    /**
+     * 按顺序逐个加入排序键，用于一边遍历有序数据一边计算
+     */
+    public static final class Builder {
+        private final int[] firstPositions = new int[SECTIONS.length()];
+        private int position;
+
+        public Builder() {
+            Arrays.fill(firstPositions, -1);
+        }
+
+        public void add(String sortKey) {
+            add(sortKey, 1);
+        }
+
+        /**
+         * 加入 count 个分区相同的连续排序键，用于只知道每段行数、不逐行遍历的情况
+         */
+        public void add(String sortKey, int count) {
+            if (count <= 0) {
+                return;
+            }
+            int index = SECTIONS.indexOf(sectionOf(sortKey));
+            if (firstPositions[index] == -1) {
+                firstPositions[index] = position;
+            }
+            position += count;
+        }
+
+        public SectionIndex build() {
+            return new SectionIndex(firstPositions.clone());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * 联系人 CSV 行格式的本地单元测试
+ */
+public class ContactCsvTest {
+
+    @Test
+    public void writeRow_readsBackTheSameFields() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        ContactCsv.writeHeader(writer);
+        ContactCsv.writeRow(writer, 7, "张三", "备注,\"常用\"\n第二行", "13800000000", "同事", "content://photo/1");
+        ContactCsv.writeRow(writer, 8, "Bob", "", "", "家人", null);
+        writer.flush();
+
+        CsvReader reader = new CsvReader(new StringReader(out.toString()));
+        reader.readRecord(); // 跳过头部
+        String[] first = ContactCsv.readRow(reader, ContactCsvTest::fields);
+        assertArrayEquals(new String[]{"张三", "备注,\"常用\"\n第二行", "13800000000", "同事", "content://photo/1"}, first);
+        String[] second = ContactCsv.readRow(reader, ContactCsvTest::fields);
+        assertArrayEquals(new String[]{"Bob", "", "", "家人", null}, second);
+        assertNull(ContactCsv.readRow(reader, ContactCsvTest::fields));
+    }
+
+    @Test
+    public void readRow_skipsShortRowsAndOldNullPhotos() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("1,只有两列\n2,李四,,,朋友,null\n"));
+
+        assertArrayEquals(new String[]{"李四", "", "", "朋友", null}, ContactCsv.readRow(reader, ContactCsvTest::fields));
+        assertNull(ContactCsv.readRow(reader, ContactCsvTest::fields));
+    }
+
+    private static String[] fields(String name, String nickname, String phoneNumber, String group, String photoUri) {
+        return new String[]{name, nickname, phoneNumber, group, photoUri};
+    }
+}
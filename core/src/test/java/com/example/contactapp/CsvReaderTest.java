@@ -0,0 +1,34 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * CsvReader 的本地单元测试
+ */
+public class CsvReaderTest {
+
+    @Test
+    public void readRecord_handlesQuotesEscapesAndLineEndings() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFID,姓名\r\n1,\"张三,李四\"\r\n2,\"他说\"\"你好\"\"\"\n3,\"第一行\n第二行\""));
+
+        assertArrayEquals(new String[]{"ID", "姓名"}, reader.readRecord());
+        assertArrayEquals(new String[]{"1", "张三,李四"}, reader.readRecord());
+        assertArrayEquals(new String[]{"2", "他说\"你好\""}, reader.readRecord());
+        assertArrayEquals(new String[]{"3", "第一行\n第二行"}, reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void readRecord_keepsEmptyFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,,c,\n"));
+
+        assertArrayEquals(new String[]{"a", "", "c", ""}, reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 重复联系人分组的本地单元测试
+ */
+public class DuplicateFinderTest {
+
+    @Test
+    public void sameNameAndPhoneNumber_isDuplicateRegardlessOfFormat() {
+        DuplicateFinder finder = new DuplicateFinder(0);
+        finder.add(1, "张三", "zhangsan", "138-0013-8000");
+        finder.add(2, "张三", "zhangsan", "+86 13800138000");
+        finder.add(3, "李四", "lisi", "13900139000");
+
+        List<DuplicateFinder.Group> groups = finder.find();
+        assertEquals(1, groups.size());
+        assertArrayEquals(new long[]{1, 2}, groups.get(0).getIds());
+        assertEquals(1, groups.get(0).getKeeperId());
+    }
+
+    @Test
+    public void samePhoneNumberOnly_isNotDuplicate() {
+        DuplicateFinder finder = new DuplicateFinder(0);
+        // 家人共用一个座机号码
+        finder.add(1, "张三", "zhangsan", "010-6552-9988");
+        finder.add(2, "李梅", "limei", "01065529988");
+
+        assertTrue(finder.find().isEmpty());
+    }
+
+    @Test
+    public void sameNameAndPhoneNumber_isJoinedWhenNameBucketKnowsAnotherPhone() {
+        DuplicateFinder finder = new DuplicateFinder(0);
+        finder.add(1, "Bob", "bob", "13800138000");
+        finder.add(2, "Bob", "bob", "13900139000");
+        finder.add(3, "bob", "bob", "139 0013 9000");
+
+        List<DuplicateFinder.Group> groups = finder.find();
+        assertEquals(1, groups.size());
+        assertArrayEquals(new long[]{2, 3}, groups.get(0).getIds());
+    }
+
+    @Test
+    public void sameName_requiresCompatiblePhoneNumbers() {
+        DuplicateFinder finder = new DuplicateFinder(0);
+        finder.add(1, "王伟", "wangwei", null);
+        finder.add(2, "王伟", "wangwei", "13800138000");
+        finder.add(3, "王 伟", "wang wei", "13800138000");
+        // 同名但号码不同，是另一个人
+        finder.add(4, "汪伟", "wangwei", "13900139000");
+
+        List<DuplicateFinder.Group> groups = finder.find();
+        assertEquals(1, groups.size());
+        assertArrayEquals(new long[]{1, 2, 3}, groups.get(0).getIds());
+    }
+
+    @Test
+    public void buckets_areJoinedTransitively() {
+        DuplicateFinder finder = new DuplicateFinder(0);
+        finder.add(5, "Bob", "bob", null);
+        finder.add(7, "BOB", "bob", "10086");
+        finder.add(6, "bob", "bob", "10086");
+        finder.add(8, "Carol", "carol", null);
+        finder.add(9, "", "", null);
+        finder.add(10, "", "", null);
+
+        List<DuplicateFinder.Group> groups = finder.find();
+        assertEquals(1, groups.size());
+        DuplicateFinder.Group group = groups.get(0);
+        assertArrayEquals(new long[]{5, 6, 7}, group.getIds());
+        assertEquals("bob", group.getName(1));
+    }
+
+    @Test
+    public void find_handlesManyContactsInLinearPasses() {
+        int count = 100_000;
+        DuplicateFinder finder = new DuplicateFinder(count);
+        for (int i = 0; i < count; i++) {
+            // 每个联系人出现两次，模拟同一个文件导入了两遍
+            finder.add(i + 1, "name" + i / 2, "name" + i / 2, String.valueOf(13_800_000_000L + i / 2));
+        }
+        List<DuplicateFinder.Group> groups = finder.find();
+        assertEquals(count / 2, groups.size());
+        assertArrayEquals(new long[]{count - 1, count}, groups.get(groups.size() - 1).getIds());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 耗时统计的本地单元测试
+ */
+public class LatencyMetricTest {
+
+    @Test
+    public void bucketOf_usesPowersOfTwoMicroseconds() {
+        assertEquals(0, LatencyMetric.bucketOf(999));
+        assertEquals(1, LatencyMetric.bucketOf(TimeUnit.MICROSECONDS.toNanos(1)));
+        assertEquals(2, LatencyMetric.bucketOf(TimeUnit.MICROSECONDS.toNanos(3)));
+        assertEquals(10, LatencyMetric.bucketOf(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(LatencyMetric.BUCKET_COUNT - 1, LatencyMetric.bucketOf(TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @Test
+    public void snapshot_reportsCountsPercentilesAndThroughput() {
+        LatencyMetric metric = new LatencyMetric("import");
+        for (int i = 1; i <= 100; i++) {
+            metric.record(TimeUnit.MICROSECONDS.toNanos(i), 10);
+        }
+        LatencyMetric.Snapshot snapshot = metric.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(1000, snapshot.getItems());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), snapshot.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50), snapshot.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(99), snapshot.getPercentileNanos(99));
+        // 总耗时 5050 微秒处理 1000 条
+        assertEquals(1000 / 5050e-6, snapshot.getItemsPerSecond(), 1);
+    }
+
+    @Test
+    public void recentSamples_keepOnlyTheLatestRecords() {
+        LatencyMetric metric = new LatencyMetric("db_query");
+        for (int i = 0; i < LatencyMetric.RECENT_SIZE; i++) {
+            metric.record(TimeUnit.SECONDS.toNanos(1), 0);
+        }
+        for (int i = 0; i < LatencyMetric.RECENT_SIZE; i++) {
+            metric.record(TimeUnit.MICROSECONDS.toNanos(5), 0);
+        }
+        LatencyMetric.Snapshot snapshot = metric.snapshot();
+        assertEquals(2L * LatencyMetric.RECENT_SIZE, snapshot.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(5), snapshot.getPercentileNanos(99));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), snapshot.getMaxNanos());
+
+        metric.reset();
+        assertEquals(0, metric.snapshot().getCount());
+        assertEquals(0, metric.snapshot().getPercentileNanos(50));
+    }
+
+    @Test
+    public void record_isSafeFromManyThreads() throws InterruptedException {
+        LatencyMetric metric = new LatencyMetric("view_bind");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metric.record(i, 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyMetric.Snapshot snapshot = metric.snapshot();
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(40_000, snapshot.getItems());
+        long bucketTotal = 0;
+        for (int i = 0; i < LatencyMetric.BUCKET_COUNT; i++) {
+            bucketTotal += snapshot.getBucketCount(i);
+        }
+        assertEquals(40_000, bucketTotal);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 电话号码规范化和尾号键的本地单元测试
+ */
+public class PhoneNumbersTest {
+
+    @Test
+    public void digitsOf_dropsSeparators() {
+        assertEquals("8613800138000", PhoneNumbers.digitsOf("+86 138-0013-8000"));
+        assertEquals("01012345678", PhoneNumbers.digitsOf("(010) 1234 5678"));
+        assertEquals("10086", PhoneNumbers.digitsOf("１００８６"));
+        assertNull(PhoneNumbers.digitsOf("未知"));
+        assertNull(PhoneNumbers.digitsOf(null));
+    }
+
+    @Test
+    public void suffixKey_ignoresCountryCode() {
+        String local = PhoneNumbers.suffixKeyOf("138 0013 8000", PhoneNumbers.DEFAULT_MATCH_DIGITS);
+        assertEquals("00083100831", local);
+        assertEquals(local, PhoneNumbers.suffixKeyOf("+86 138 0013 8000", PhoneNumbers.DEFAULT_MATCH_DIGITS));
+        assertEquals(local, PhoneNumbers.suffixKeyOf("0086-13800138000", PhoneNumbers.DEFAULT_MATCH_DIGITS));
+        // 短号码使用全部数字
+        assertEquals("68001", PhoneNumbers.suffixKeyOf("10086", PhoneNumbers.DEFAULT_MATCH_DIGITS));
+    }
+
+    @Test
+    public void prefixRange_containsOnlyMatchingSuffixes() {
+        String key = PhoneNumbers.suffixKeyOf("8000", 4);
+        String upper = PhoneNumbers.prefixUpperBound(key);
+        String matching = PhoneNumbers.reversedDigitsOf("13800138000");
+        String other = PhoneNumbers.reversedDigitsOf("13800138001");
+        assertTrue(matching.compareTo(key) >= 0 && matching.compareTo(upper) < 0);
+        assertFalse(other.compareTo(key) >= 0 && other.compareTo(upper) < 0);
+        assertTrue("00089".compareTo(upper) < 0);
+        assertTrue("0009".compareTo(upper) > 0);
+    }
+}
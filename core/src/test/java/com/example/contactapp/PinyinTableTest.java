@@ -0,0 +1,40 @@
+package com.example.contactapp;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 内置拼音表的本地单元测试，与 pinyin4j 的第一个读音逐字比较
+ */
+public class PinyinTableTest {
+
+    @Test
+    public void firstSyllable_matchesPinyin4jForEveryTableEntry() throws BadHanyuPinyinOutputFormatCombination {
+        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+        format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        format.setVCharType(HanyuPinyinVCharType.WITH_V);
+        for (char c = 0x4E00; c <= 0x9FFF; c++) {
+            String[] pinyin = PinyinHelper.toHanyuPinyinStringArray(c, format);
+            String expected = pinyin != null && pinyin.length > 0 && !pinyin[0].isEmpty() ? pinyin[0] : null;
+            assertEquals("U+" + Integer.toHexString(c), expected, PinyinTable.firstSyllable(c));
+        }
+    }
+
+    @Test
+    public void toPinyin_usesTonelessSyllables() {
+        assertEquals("zhangsan", PinyinComparator.toPinyin("张三"));
+        assertEquals("lvxiaoming", PinyinComparator.toPinyin("吕小明"));
+        assertEquals("alice", PinyinComparator.toPinyin("Alice"));
+        assertNull(PinyinTable.firstSyllable('A'));
+        assertEquals('z', PinyinTable.initialOf('张'));
+    }
+}
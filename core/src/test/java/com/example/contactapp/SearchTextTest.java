@@ -0,0 +1,47 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 全文搜索索引文本和查询表达式的本地单元测试
+ */
+public class SearchTextTest {
+
+    @Test
+    public void splitHanzi_makesEveryHanziItsOwnWord() {
+        assertEquals("李 小 明", SearchText.splitHanzi("李小明"));
+        assertEquals("王 Alice 二", SearchText.splitHanzi("王Alice二"));
+        assertEquals("Bob Lee", SearchText.splitHanzi("Bob Lee"));
+        assertNull(SearchText.splitHanzi(null));
+    }
+
+    @Test
+    public void toPrefixMatch_findsHanziInTheMiddleOfAName() {
+        // unicode61 按空白拆词，短语要求这些词在索引文本中连续出现
+        List<String> indexed = words(SearchText.splitHanzi("李小明"));
+        assertEquals("\"小 明*\"", SearchText.toPrefixMatch("小明"));
+        assertTrue(containsRun(indexed, words("小 明")));
+        assertTrue(containsRun(indexed, words("明")));
+        assertFalse(containsRun(indexed, words("明 小")));
+    }
+
+    @Test
+    public void toPrefixMatch_keepsLatinTermsAsPrefixes() {
+        assertEquals("\"bob*\" \"小 明*\"", SearchText.toPrefixMatch(" bob, 小明 "));
+        assertEquals("", SearchText.toPrefixMatch(" ,. "));
+    }
+
+    private static List<String> words(String text) {
+        return Arrays.asList(text.trim().split("\\s+"));
+    }
+
+    private static boolean containsRun(List<String> words, List<String> run) {
+        return Collections.indexOfSubList(words, run) >= 0;
+    }
+}
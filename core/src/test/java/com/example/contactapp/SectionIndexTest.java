@@ -0,0 +1,61 @@
+package com.example.contactapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 排序键与字母索引的本地单元测试
+ */
+public class SectionIndexTest {
+
+    @Test
+    public void sortKeys_groupEachSectionContiguously() {
+        List<String> sortKeys = Arrays.asList(
+                PinyinComparator.toPinyin("Zed"),
+                PinyinComparator.toPinyin("张三"),
+                PinyinComparator.toPinyin("123"),
+                PinyinComparator.toPinyin("alice"),
+                PinyinComparator.toPinyin("Bob"),
+                PinyinComparator.toPinyin("阿明"));
+        sortKeys.sort(null);
+
+        SectionIndex.Builder builder = new SectionIndex.Builder();
+        for (String sortKey : sortKeys) {
+            builder.add(sortKey);
+        }
+        SectionIndex sections = builder.build();
+
+        assertEquals(0, sections.getPosition('A'));
+        assertEquals(2, sections.getPosition('B'));
+        assertEquals(3, sections.getPosition('Z'));
+        assertEquals(5, sections.getPosition(SectionIndex.OTHER_SECTION));
+        assertFalse(sections.hasSection('C'));
+    }
+
+    @Test
+    public void addWithCount_placesSectionsAfterEarlierRuns() {
+        SectionIndex.Builder builder = new SectionIndex.Builder();
+        builder.add("a", 3);
+        builder.add("c", 0);
+        builder.add("z", 5);
+        builder.add(PinyinComparator.OTHER_SECTION_PREFIX + "1", 2);
+        SectionIndex sections = builder.build();
+
+        assertEquals(0, sections.getPosition('A'));
+        assertFalse(sections.hasSection('C'));
+        assertEquals(3, sections.getPosition('Z'));
+        assertEquals(8, sections.getPosition(SectionIndex.OTHER_SECTION));
+    }
+
+    @Test
+    public void sectionOf_mapsNonLettersToOtherSection() {
+        assertEquals('Z', SectionIndex.sectionOf(PinyinComparator.toPinyin("张三")));
+        assertEquals('A', SectionIndex.sectionOf(PinyinComparator.toPinyin("Alice")));
+        assertEquals(SectionIndex.OTHER_SECTION, SectionIndex.sectionOf(PinyinComparator.toPinyin("123")));
+        assertEquals(SectionIndex.OTHER_SECTION, SectionIndex.sectionOf(PinyinComparator.toPinyin(null)));
+    }
+}